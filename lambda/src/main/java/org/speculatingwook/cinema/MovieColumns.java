@@ -0,0 +1,270 @@
+package org.speculatingwook.cinema;
+
+import org.speculatingwook.common.Snapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MovieService의 열(column) 단위 저장소입니다.
+ * <p>
+ * 영화의 숫자 속성을 속성별 primitive 배열에 나눠 담고, 장르와 감독은 사전으로 정수 id로 바꿔 담습니다.
+ * 집계와 필터는 객체를 따라가지 않고 배열 하나를 처음부터 끝까지 훑는 단순한 반복문으로 처리되므로
+ * 캐시 효율이 좋고 JIT이 벡터화하기 쉽습니다. 결과로 돌려줄 Movie 객체는 같은 칸 번호의 배열에 따로 둡니다.
+ * </p>
+ * <p>
+ * 칸 번호는 추가된 순서대로 0부터 부여됩니다. 단일 스레드에서 사용하는 것을 전제로 합니다.
+ * </p>
+ */
+class MovieColumns {
+    private Movie[] movies = new Movie[16];
+    private int[] year = new int[16];
+    private int[] duration = new int[16];
+    private double[] rating = new double[16];
+    private long[] boxOffice = new long[16];
+    private int[] genre = new int[16];
+    private int[] director = new int[16];
+    private int size;
+
+    private final Dictionary genres = new Dictionary();
+    private final Dictionary directors = new Dictionary();
+
+    /**
+     * @return 새 영화의 칸 번호
+     */
+    int add(Movie movie) {
+        if (size == movies.length) {
+            int capacity = size * 2;
+            movies = Arrays.copyOf(movies, capacity);
+            year = Arrays.copyOf(year, capacity);
+            duration = Arrays.copyOf(duration, capacity);
+            rating = Arrays.copyOf(rating, capacity);
+            boxOffice = Arrays.copyOf(boxOffice, capacity);
+            genre = Arrays.copyOf(genre, capacity);
+            director = Arrays.copyOf(director, capacity);
+        }
+        movies[size] = movie;
+        year[size] = movie.getYear();
+        duration[size] = movie.getDuration();
+        rating[size] = movie.getRating();
+        boxOffice[size] = movie.getBoxOffice();
+        genre[size] = genres.encode(movie.getGenre());
+        director[size] = directors.encode(movie.getDirector());
+        return size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Movie movieAt(int slot) {
+        return movies[slot];
+    }
+
+    /**
+     * 배열은 뒤에 추가만 되고 커질 때는 새로 만들어지므로, 복사 없이 감싸도 이후 추가에 영향을 받지 않습니다.
+     * @return 추가된 순서의 읽기 전용 스냅샷
+     */
+    Snapshot<Movie> movies() {
+        return Snapshot.of(movies, size);
+    }
+
+    // ------------------------------------------------------------------
+    // 필터: 조건에 맞는 칸의 Movie를 추가된 순서대로 모읍니다.
+    // ------------------------------------------------------------------
+
+    List<Movie> withGenre(String name) {
+        int id = genres.idOf(name);
+        List<Movie> result = new ArrayList<>();
+        if (id < 0) {
+            return result;
+        }
+        int[] genre = this.genre;
+        for (int i = 0; i < size; i++) {
+            if (genre[i] == id) {
+                result.add(movies[i]);
+            }
+        }
+        return result;
+    }
+
+    List<Movie> withDirector(String name) {
+        int id = directors.idOf(name);
+        List<Movie> result = new ArrayList<>();
+        if (id < 0) {
+            return result;
+        }
+        int[] director = this.director;
+        for (int i = 0; i < size; i++) {
+            if (director[i] == id) {
+                result.add(movies[i]);
+            }
+        }
+        return result;
+    }
+
+    // ------------------------------------------------------------------
+    // 집계
+    // ------------------------------------------------------------------
+
+    long sumDuration() {
+        long sum = 0;
+        int[] duration = this.duration;
+        for (int i = 0; i < size; i++) {
+            sum += duration[i];
+        }
+        return sum;
+    }
+
+    long productOfDurations() {
+        long product = 1;
+        int[] duration = this.duration;
+        for (int i = 0; i < size; i++) {
+            product *= duration[i];
+        }
+        return product;
+    }
+
+    long sumBoxOffice() {
+        long sum = 0;
+        long[] boxOffice = this.boxOffice;
+        for (int i = 0; i < size; i++) {
+            sum += boxOffice[i];
+        }
+        return sum;
+    }
+
+    long sumBoxOfficeOfGenre(String name) {
+        int id = genres.idOf(name);
+        if (id < 0) {
+            return 0;
+        }
+        long sum = 0;
+        int[] genre = this.genre;
+        long[] boxOffice = this.boxOffice;
+        for (int i = 0; i < size; i++) {
+            if (genre[i] == id) {
+                sum += boxOffice[i];
+            }
+        }
+        return sum;
+    }
+
+    double sumRating() {
+        double sum = 0;
+        double[] rating = this.rating;
+        for (int i = 0; i < size; i++) {
+            sum += rating[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return 가장 이른 개봉 연도, 영화가 없으면 Integer.MAX_VALUE
+     */
+    int minYear() {
+        int min = Integer.MAX_VALUE;
+        int[] year = this.year;
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, year[i]);
+        }
+        return min;
+    }
+
+    /**
+     * @return 평점이 가장 높은 칸 (같으면 먼저 추가된 칸), 영화가 없으면 -1
+     */
+    int maxRatingSlot() {
+        int best = -1;
+        double[] rating = this.rating;
+        for (int i = 0; i < size; i++) {
+            if (best < 0 || Double.compare(rating[i], rating[best]) > 0) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return 흥행수익이 가장 높은 칸 (같으면 먼저 추가된 칸), 영화가 없으면 -1
+     */
+    int maxBoxOfficeSlot() {
+        int best = -1;
+        long[] boxOffice = this.boxOffice;
+        for (int i = 0; i < size; i++) {
+            if (best < 0 || boxOffice[i] > boxOffice[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Reducing 집계값 전부와 장르별 흥행수익 합계를 한 번의 반복문으로 구합니다.
+     */
+    MovieStatistics statistics() {
+        long totalDuration = 0;
+        long totalBoxOffice = 0;
+        double sumOfRatings = 0;
+        int earliestYear = Integer.MAX_VALUE;
+        int maxRating = -1;
+        int maxBoxOffice = -1;
+        long[] boxOfficeByGenre = new long[genres.size()];
+        for (int i = 0; i < size; i++) {
+            totalDuration += duration[i];
+            totalBoxOffice += boxOffice[i];
+            sumOfRatings += rating[i];
+            earliestYear = Math.min(earliestYear, year[i]);
+            if (maxRating < 0 || Double.compare(rating[i], rating[maxRating]) > 0) {
+                maxRating = i;
+            }
+            if (maxBoxOffice < 0 || boxOffice[i] > boxOffice[maxBoxOffice]) {
+                maxBoxOffice = i;
+            }
+            boxOfficeByGenre[genre[i]] += boxOffice[i];
+        }
+        Map<String, Long> byGenre = new HashMap<>();
+        for (int id = 0; id < boxOfficeByGenre.length; id++) {
+            byGenre.put(genres.nameOf(id), boxOfficeByGenre[id]);
+        }
+        return new MovieStatistics(size, totalDuration, totalBoxOffice, sumOfRatings, earliestYear,
+                maxRating < 0 ? null : movies[maxRating], maxBoxOffice < 0 ? null : movies[maxBoxOffice], byGenre);
+    }
+
+    /**
+     * 문자열 값과 0부터 차례로 부여되는 정수 id를 서로 변환하는 사전입니다. null도 하나의 값으로 취급합니다.
+     */
+    static class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+
+        int encode(String name) {
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = names.size();
+                ids.put(name, id);
+                names.add(name);
+            }
+            return id;
+        }
+
+        /**
+         * @return 값의 id, 한 번도 등록된 적 없는 값이면 -1
+         */
+        int idOf(String name) {
+            Integer id = ids.get(name);
+            return id == null ? -1 : id;
+        }
+
+        String nameOf(int id) {
+            return names.get(id);
+        }
+
+        int size() {
+            return names.size();
+        }
+    }
+}
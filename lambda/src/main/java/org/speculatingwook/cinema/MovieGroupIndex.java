@@ -0,0 +1,73 @@
+package org.speculatingwook.cinema;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * 키 -> 값 묶음 인덱스입니다. (예: 장르 -> 영화 목록, 감독 -> 제목 목록)
+ * <p>
+ * 영화가 추가될 때 해당 키의 묶음에 값을 붙이고, 조회 시에는 미리 만들어 둔 읽기 전용 뷰를 그대로 돌려줍니다.
+ * 뷰는 매번 같은 객체이므로 조회할 때 맵이나 리스트를 새로 만들지 않으며, 이후 추가된 영화도 바로 보입니다.
+ * 단일 스레드에서 사용하는 것을 전제로 합니다.
+ * </p>
+ * @param <K> 키 타입
+ * @param <V> 값 타입
+ * @param <C> 묶음 타입
+ */
+class MovieGroupIndex<K, V, C extends Collection<V>> {
+    private final Function<Movie, K> keyExtractor;
+    private final Function<Movie, V> valueExtractor;
+    private final Supplier<C> groupFactory;
+    private final UnaryOperator<C> readOnly;
+
+    private final Map<K, C> groups = new HashMap<>();
+    private final Map<K, C> readOnlyGroups = new HashMap<>();
+    private final Map<K, C> view = Collections.unmodifiableMap(readOnlyGroups);
+
+    private MovieGroupIndex(Function<Movie, K> keyExtractor, Function<Movie, V> valueExtractor,
+                            Supplier<C> groupFactory, UnaryOperator<C> readOnly) {
+        this.keyExtractor = keyExtractor;
+        this.valueExtractor = valueExtractor;
+        this.groupFactory = groupFactory;
+        this.readOnly = readOnly;
+    }
+
+    static <K> MovieGroupIndex<K, Movie, List<Movie>> lists(Function<Movie, K> keyExtractor) {
+        return lists(keyExtractor, Function.identity());
+    }
+
+    static <K, V> MovieGroupIndex<K, V, List<V>> lists(Function<Movie, K> keyExtractor, Function<Movie, V> valueExtractor) {
+        return new MovieGroupIndex<>(keyExtractor, valueExtractor, ArrayList::new, Collections::unmodifiableList);
+    }
+
+    static <K> MovieGroupIndex<K, Movie, Set<Movie>> sets(Function<Movie, K> keyExtractor) {
+        return new MovieGroupIndex<>(keyExtractor, Function.identity(), LinkedHashSet::new, Collections::unmodifiableSet);
+    }
+
+    void add(Movie movie) {
+        K key = keyExtractor.apply(movie);
+        C group = groups.get(key);
+        if (group == null) {
+            group = groupFactory.get();
+            groups.put(key, group);
+            readOnlyGroups.put(key, readOnly.apply(group));
+        }
+        group.add(valueExtractor.apply(movie));
+    }
+
+    /**
+     * @return 키 -> 묶음의 읽기 전용 뷰
+     */
+    Map<K, C> view() {
+        return view;
+    }
+}
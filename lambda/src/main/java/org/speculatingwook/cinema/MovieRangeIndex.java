@@ -0,0 +1,165 @@
+package org.speculatingwook.cinema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 영화의 숫자 속성 하나를 기준으로 정렬해 둔 범위 조회용 보조 인덱스입니다.
+ * <p>
+ * 키와 영화를 키 순서대로 나란히 정렬한 배열로 들고 있어서, 범위 조회는 이진 탐색으로 양 끝을 찾은 뒤
+ * 그 구간을 그대로 복사하는 것으로 끝납니다. (O(log N + k))
+ * 키가 같은 영화들은 추가된 순서를 유지합니다.
+ * </p>
+ * <p>
+ * 새 영화는 정렬된 구간 뒤(꼬리)에 모아 두므로 추가마다 배열을 밀어내는 비용이 들지 않습니다.
+ * 조회는 정렬된 구간을 이진 탐색하고 꼬리만 훑어 합치며, 꼬리가 sqrt(N)(최소 {@value #MIN_TAIL})보다 길어졌을 때만
+ * 꼬리를 정렬해 정렬된 구간과 병합합니다. 추가와 조회가 번갈아 와도 O(N) 병합은 sqrt(N)번의 추가에 한 번만 일어나므로,
+ * 추가와 조회 모두 O(sqrt(N)) 정도의 비용으로 유지됩니다.
+ * 단일 스레드에서 사용하는 것을 전제로 합니다.
+ * </p>
+ */
+class MovieRangeIndex {
+    private static final int MIN_TAIL = 64;
+
+    private final ToLongFunction<Movie> keyExtractor;
+
+    private long[] keys = new long[16];
+    private Movie[] movies = new Movie[16];
+    // [0, sorted) 구간은 정렬되어 있고 [sorted, size) 구간은 아직 병합하지 않은 새 영화입니다.
+    private int sorted;
+    private int size;
+
+    /**
+     * @param keyExtractor 영화의 정렬 키. 키의 순서가 곧 인덱스의 순서입니다.
+     */
+    MovieRangeIndex(ToLongFunction<Movie> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    static MovieRangeIndex ofDouble(ToDoubleFunction<Movie> keyExtractor) {
+        return new MovieRangeIndex(movie -> sortableKey(keyExtractor.applyAsDouble(movie)));
+    }
+
+    /**
+     * double 값을 같은 순서의 long 값으로 바꿉니다.
+     * 0.0을 더해서 -0.0과 0.0이 같은 키가 되게 합니다.
+     */
+    static long sortableKey(double value) {
+        long bits = Double.doubleToLongBits(value + 0.0);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    void add(Movie movie) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            movies = Arrays.copyOf(movies, size * 2);
+        }
+        keys[size] = keyExtractor.applyAsLong(movie);
+        movies[size] = movie;
+        size++;
+    }
+
+    /**
+     * @return 키가 min 이상 max 이하인 영화들 (키 순서)
+     */
+    List<Movie> between(long min, long max) {
+        if (min > max) {
+            return new ArrayList<>();
+        }
+        if (size - sorted > Math.max(MIN_TAIL, (int) Math.sqrt(sorted))) {
+            merge();
+        }
+        int from = firstIndexAtLeast(min);
+        int to = Math.max(from, max == Long.MAX_VALUE ? sorted : firstIndexAtLeast(max + 1));
+        if (sorted == size) {
+            return new ArrayList<>(Arrays.asList(movies).subList(from, to));
+        }
+
+        // 꼬리에서 범위에 드는 영화만 골라 정렬한 뒤 정렬된 구간의 결과와 병합합니다.
+        int matched = 0;
+        long[] tailKeys = new long[size - sorted];
+        Movie[] tailMovies = new Movie[size - sorted];
+        for (int i = sorted; i < size; i++) {
+            if (keys[i] >= min && keys[i] <= max) {
+                tailKeys[matched] = keys[i];
+                tailMovies[matched++] = movies[i];
+            }
+        }
+        sort(tailKeys, tailMovies, 0, matched, new long[matched], new Movie[matched]);
+        List<Movie> result = new ArrayList<>(to - from + matched);
+        int tail = 0;
+        for (int i = from; i < to; i++) {
+            // 키가 같으면 먼저 추가된 정렬된 구간의 영화가 앞에 옵니다.
+            while (tail < matched && tailKeys[tail] < keys[i]) {
+                result.add(tailMovies[tail++]);
+            }
+            result.add(movies[i]);
+        }
+        while (tail < matched) {
+            result.add(tailMovies[tail++]);
+        }
+        return result;
+    }
+
+    // 정렬된 구간에서 키가 key 이상인 첫 위치
+    private int firstIndexAtLeast(long key) {
+        int low = 0;
+        int high = sorted;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // 아직 병합하지 않은 영화들을 정렬해서 정렬된 구간과 합칩니다.
+    private void merge() {
+        if (sorted == size) {
+            return;
+        }
+        long[] keyBuffer = new long[keys.length];
+        Movie[] movieBuffer = new Movie[keys.length];
+        sort(keys, movies, sorted, size, keyBuffer, movieBuffer);
+        if (sorted > 0) {
+            mergeRuns(keys, movies, 0, sorted, size, keyBuffer, movieBuffer);
+            keys = keyBuffer;
+            movies = movieBuffer;
+        }
+        sorted = size;
+    }
+
+    // [from, to) 구간을 안정 병합 정렬합니다. 결과는 keys, movies에 남습니다.
+    private static void sort(long[] keys, Movie[] movies, int from, int to, long[] keyBuffer, Movie[] movieBuffer) {
+        for (int width = 1; width < to - from; width *= 2) {
+            for (int start = from; start < to; start += 2 * width) {
+                int middle = Math.min(start + width, to);
+                int end = Math.min(start + 2 * width, to);
+                mergeRuns(keys, movies, start, middle, end, keyBuffer, movieBuffer);
+            }
+            System.arraycopy(keyBuffer, from, keys, from, to - from);
+            System.arraycopy(movieBuffer, from, movies, from, to - from);
+        }
+    }
+
+    // 정렬된 [start, middle)과 [middle, end)를 buffer의 [start, end)에 병합합니다. 키가 같으면 앞 구간이 먼저 옵니다.
+    private static void mergeRuns(long[] keys, Movie[] movies, int start, int middle, int end, long[] keyBuffer, Movie[] movieBuffer) {
+        int left = start;
+        int right = middle;
+        for (int out = start; out < end; out++) {
+            if (right >= end || (left < middle && keys[left] <= keys[right])) {
+                keyBuffer[out] = keys[left];
+                movieBuffer[out] = movies[left++];
+            } else {
+                keyBuffer[out] = keys[right];
+                movieBuffer[out] = movies[right++];
+            }
+        }
+    }
+}
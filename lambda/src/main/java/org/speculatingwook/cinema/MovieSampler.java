@@ -0,0 +1,237 @@
+package org.speculatingwook.cinema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 가중치에 비례해서 영화를 무작위로 뽑는 샘플러입니다. (추천용)
+ * <p>
+ * 가중치로 alias table(Vose 방식)을 만들어 두므로 한 편을 뽑는 데 난수 두 개와 배열 조회 두 번, O(1)이면 됩니다.
+ * 테이블은 처음 뽑을 때와 영화가 추가된 뒤 처음 뽑을 때 다시 만들어집니다.
+ * 난수는 ThreadLocalRandom을 쓰고 만들어진 테이블은 바뀌지 않으므로, 영화 추가가 끝난 뒤에는
+ * 여러 스레드에서 동시에 뽑아도 서로 경합하지 않습니다. 영화 추가와 동시에 호출하면 안 됩니다.
+ * </p>
+ * <p>
+ * 가중치가 0인 영화는 뽑히지 않으며, 음수나 NaN 가중치는 테이블을 만들 때 IllegalArgumentException을 던집니다.
+ * </p>
+ */
+public class MovieSampler {
+    private final MovieColumns columns;
+    private final ToDoubleFunction<Movie> weight;
+    private volatile AliasTable table;
+
+    MovieSampler(MovieColumns columns, ToDoubleFunction<Movie> weight) {
+        this.columns = columns;
+        this.weight = weight;
+    }
+
+    /**
+     * @return 가중치에 비례해서 뽑은 영화, 가중치가 있는 영화가 없으면 empty
+     */
+    public Optional<Movie> sample() {
+        AliasTable table = table();
+        if (table.totalWeight == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(table.movies[table.pick(ThreadLocalRandom.current())]);
+    }
+
+    /**
+     * 같은 영화를 두 번 뽑지 않고 k편을 뽑습니다. 먼저 뽑힌 영화가 앞에 옵니다.
+     * 가중치가 있는 영화가 k편보다 적으면 그 영화들만 돌려줍니다.
+     * <p>
+     * 어느 방식으로 뽑을지는 뽑기 전에 k와 가중치 분포만 보고 정합니다.
+     * 가장 큰 가중치의 k배가 전체 가중치의 절반 이하이면 alias table에서 뽑고 이미 뽑힌 영화는 다시 뽑습니다.
+     * 이때 한 번에 받아들여질 확률이 항상 1/2 이상이므로 평균 2k번 안에 끝납니다.
+     * 그렇지 않으면(가중치가 몇 편에 몰려 있거나 k가 클 때) 전체를 한 번 훑는
+     * 지수 키 방식(Efraimidis-Spirakis, O(N log k))으로 뽑습니다.
+     * 두 방식 모두 남은 영화 중에서 가중치에 비례해 한 편씩 차례로 뽑은 것과 같은 분포를 따릅니다.
+     * </p>
+     * @param k 뽑을 영화 수
+     */
+    public List<Movie> sample(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        AliasTable table = table();
+        int count = Math.min(k, table.positiveCount);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // 도중에 방식을 바꾸면 늦게 끝나는 결과만 다른 방식으로 다시 뽑게 되어 분포가 치우칩니다.
+        if (count * table.maxWeight > table.totalWeight / 2) {
+            return table.sampleByExponentialKeys(count, random);
+        }
+        List<Movie> result = new ArrayList<>(count);
+        Set<Integer> picked = new HashSet<>();
+        while (result.size() < count) {
+            int slot = table.pick(random);
+            if (picked.add(slot)) {
+                result.add(table.movies[slot]);
+            }
+        }
+        return result;
+    }
+
+    private AliasTable table() {
+        AliasTable current = table;
+        if (current == null || current.movies.length != columns.size()) {
+            current = new AliasTable(columns.movies().toArray(new Movie[0]), weight);
+            table = current;
+        }
+        return current;
+    }
+
+    private static class AliasTable {
+        private final Movie[] movies;
+        private final double[] weights;
+        private final double[] probability;
+        private final int[] alias;
+        private final double totalWeight;
+        private final double maxWeight;
+        private final int positiveCount;
+
+        AliasTable(Movie[] movies, ToDoubleFunction<Movie> weight) {
+            int n = movies.length;
+            this.movies = movies;
+            this.weights = new double[n];
+            this.probability = new double[n];
+            this.alias = new int[n];
+            double total = 0;
+            double max = 0;
+            int positive = 0;
+            for (int i = 0; i < n; i++) {
+                double w = weight.applyAsDouble(movies[i]);
+                if (!(w >= 0) || Double.isInfinite(w)) {
+                    throw new IllegalArgumentException("Invalid weight " + w + " for " + movies[i]);
+                }
+                weights[i] = w;
+                total += w;
+                max = Math.max(max, w);
+                if (w > 0) {
+                    positive++;
+                }
+            }
+            this.totalWeight = total;
+            this.maxWeight = max;
+            this.positiveCount = positive;
+            if (total == 0) {
+                return;
+            }
+
+            // 평균이 1이 되도록 맞춘 뒤, 1보다 작은 칸을 1보다 큰 칸으로 채웁니다. 두 스택은 배열 하나를 양쪽에서 씁니다.
+            double[] scaled = new double[n];
+            int[] stacks = new int[n];
+            int small = 0;
+            int large = n;
+            for (int i = 0; i < n; i++) {
+                scaled[i] = weights[i] * n / total;
+                if (scaled[i] < 1) {
+                    stacks[small++] = i;
+                } else {
+                    stacks[--large] = i;
+                }
+            }
+            while (small > 0 && large < n) {
+                int less = stacks[--small];
+                int more = stacks[large++];
+                probability[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] = scaled[more] + scaled[less] - 1;
+                if (scaled[more] < 1) {
+                    stacks[small++] = more;
+                } else {
+                    stacks[--large] = more;
+                }
+            }
+            // 부동소수점 오차로 남은 칸은 자기 자신을 확률 1로 고릅니다.
+            while (large < n) {
+                int slot = stacks[large++];
+                probability[slot] = 1;
+                alias[slot] = slot;
+            }
+            while (small > 0) {
+                int slot = stacks[--small];
+                probability[slot] = weights[slot] > 0 ? 1 : 0;
+                alias[slot] = slot;
+            }
+        }
+
+        int pick(ThreadLocalRandom random) {
+            int slot = random.nextInt(movies.length);
+            return random.nextDouble() < probability[slot] ? slot : alias[slot];
+        }
+
+        // 영화마다 지수분포 키 -ln(u) / w를 뽑아 키가 작은 count편을 고릅니다. 결과는 키 오름차순입니다.
+        List<Movie> sampleByExponentialKeys(int count, ThreadLocalRandom random) {
+            double[] heapKeys = new double[count];
+            int[] heapSlots = new int[count];
+            int size = 0;
+            for (int slot = 0; slot < movies.length; slot++) {
+                if (weights[slot] == 0) {
+                    continue;
+                }
+                double key = -Math.log(1 - random.nextDouble()) / weights[slot];
+                if (size < count) {
+                    heapKeys[size] = key;
+                    heapSlots[size] = slot;
+                    siftUp(heapKeys, heapSlots, size++);
+                } else if (key < heapKeys[0]) {
+                    heapKeys[0] = key;
+                    heapSlots[0] = slot;
+                    siftDown(heapKeys, heapSlots, 0, size);
+                }
+            }
+            Movie[] result = new Movie[size];
+            // 키가 가장 큰 것이 루트에 있는 힙이므로 하나씩 꺼내 뒤에서부터 채웁니다.
+            for (int last = size - 1; last >= 0; last--) {
+                result[last] = movies[heapSlots[0]];
+                heapKeys[0] = heapKeys[last];
+                heapSlots[0] = heapSlots[last];
+                siftDown(heapKeys, heapSlots, 0, last);
+            }
+            return Arrays.asList(result);
+        }
+
+        private static void siftUp(double[] keys, int[] slots, int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[i] <= keys[parent]) {
+                    return;
+                }
+                swap(keys, slots, i, parent);
+                i = parent;
+            }
+        }
+
+        private static void siftDown(double[] keys, int[] slots, int i, int size) {
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    return;
+                }
+                if (child + 1 < size && keys[child + 1] > keys[child]) {
+                    child++;
+                }
+                if (keys[child] <= keys[i]) {
+                    return;
+                }
+                swap(keys, slots, i, child);
+                i = child;
+            }
+        }
+
+        private static void swap(double[] keys, int[] slots, int i, int j) {
+            double key = keys[i];
+            keys[i] = keys[j];
+            keys[j] = key;
+            int slot = slots[i];
+            slots[i] = slots[j];
+            slots[j] = slot;
+        }
+    }
+}
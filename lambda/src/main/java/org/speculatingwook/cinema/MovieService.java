@@ -1,9 +1,13 @@
 package org.speculatingwook.cinema;
 
+import org.speculatingwook.common.Snapshot;
+
 import java.util.*;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * <h2>MovieService</h2>
@@ -14,10 +18,57 @@ import java.util.stream.Collectors;
  */
 public class MovieService {
 
-    private List<Movie> movies = new ArrayList<>();
+    // 영화를 속성별 배열로 나눠 담는 저장소. 장르/감독 필터와 집계는 이 배열을 직접 훑습니다.
+    private final MovieColumns columns = new MovieColumns();
+    // 범위 필터용 정렬 인덱스. 범위 필터의 결과는 해당 속성의 오름차순입니다.
+    private final MovieRangeIndex durationIndex = new MovieRangeIndex(Movie::getDuration);
+    private final MovieRangeIndex ratingIndex = MovieRangeIndex.ofDouble(Movie::getRating);
+    private final MovieRangeIndex yearIndex = new MovieRangeIndex(Movie::getYear);
+    private final MovieRangeIndex boxOfficeIndex = new MovieRangeIndex(Movie::getBoxOffice);
+    // 제목 부분 문자열 검색용 trigram 인덱스
+    private final MovieTitleIndex titleIndex = new MovieTitleIndex();
+    // 그룹화 인덱스. 조회 시에는 만들어 둔 읽기 전용 뷰를 그대로 돌려줍니다.
+    private final MovieGroupIndex<String, Movie, List<Movie>> moviesByGenre = MovieGroupIndex.lists(Movie::getGenre);
+    private final MovieGroupIndex<String, Movie, List<Movie>> moviesByDirector = MovieGroupIndex.lists(Movie::getDirector);
+    private final MovieGroupIndex<Integer, Movie, List<Movie>> moviesByYear = MovieGroupIndex.lists(Movie::getYear);
+    private final MovieGroupIndex<Integer, Movie, List<Movie>> moviesByRoundedRating = MovieGroupIndex.lists(movie -> (int) Math.floor(movie.getRating()));
+    private final MovieGroupIndex<String, Movie, List<Movie>> moviesByDurationCategory = MovieGroupIndex.lists(MovieService::durationCategory);
+    private final MovieGroupIndex<String, Movie, Set<Movie>> movieSetsByDirector = MovieGroupIndex.sets(Movie::getDirector);
+    private final MovieGroupIndex<String, String, List<String>> titlesByDirector = MovieGroupIndex.lists(Movie::getDirector, Movie::getTitle);
+    private final Map<String, Long> genreCounts = new HashMap<>();
+    private final Map<String, Long> genreCountView = Collections.unmodifiableMap(genreCounts);
+    // 정렬 기준별 정렬된 뷰. 처음 조회될 때 만들어지고, 이후 추가되는 영화는 뷰에 병합됩니다.
+    private final Map<MovieSortKey, MovieSortedView> sortedViews = new EnumMap<>(MovieSortKey.class);
+    // 가중 무작위 샘플러. alias table은 처음 뽑을 때와 영화가 추가된 뒤 처음 뽑을 때 다시 만들어집니다.
+    private final MovieSampler boxOfficeSampler = new MovieSampler(columns, Movie::getBoxOffice);
+    private final MovieSampler ratingSampler = new MovieSampler(columns, Movie::getRating);
+    // addMovie가 모든 구조를 갱신한 뒤 올리는 카탈로그 버전. 파생값 Supplier가 이 값으로 결과를 재사용할지 정합니다.
+    private volatile long catalogVersion;
+    // addMovie가 발행하는 전체 목록 스냅샷. getMovies()는 이 값을 복사 없이 돌려줍니다.
+    private volatile Snapshot<Movie> snapshot = Snapshot.empty();
 
     public void addMovie(Movie movie) {
-        movies.add(movie);
+        columns.add(movie);
+        durationIndex.add(movie);
+        ratingIndex.add(movie);
+        yearIndex.add(movie);
+        boxOfficeIndex.add(movie);
+        titleIndex.add(movie);
+        moviesByGenre.add(movie);
+        moviesByDirector.add(movie);
+        moviesByYear.add(movie);
+        moviesByRoundedRating.add(movie);
+        moviesByDurationCategory.add(movie);
+        movieSetsByDirector.add(movie);
+        titlesByDirector.add(movie);
+        genreCounts.merge(movie.getGenre(), 1L, Long::sum);
+        sortedViews.values().forEach(view -> view.add(movie));
+        snapshot = columns.movies();
+        catalogVersion++;
+    }
+
+    private MovieSortedView sortedView(MovieSortKey key) {
+        return sortedViews.computeIfAbsent(key, k -> new MovieSortedView(k.comparator(), columns.movies()));
     }
 
     // ========================================================
@@ -26,52 +77,59 @@ public class MovieService {
 
     /** Filtering #1: 특정 장르의 영화 목록 반환 */
     public List<Movie> getMoviesByGenre(String genre) {
-        return null;
+        return columns.withGenre(genre);
     }
 
     /** Filtering #2: 상영 시간이 특정 분보다 긴 영화 목록 반환 */
     public List<Movie> getMoviesLongerThan(int minDuration) {
-        return null;
+        return durationIndex.between((long) minDuration + 1, Integer.MAX_VALUE);
     }
 
     /** Filtering #3: 평점이 특정 값 이상인 영화 목록 반환 */
     public List<Movie> getMoviesWithRatingAbove(double minRating) {
-        return null;
+        return ratingIndex.between(MovieRangeIndex.sortableKey(minRating), MovieRangeIndex.sortableKey(Double.POSITIVE_INFINITY));
     }
 
     /** Filtering #4: 특정 연도 이후에 개봉한 영화 목록 반환 */
     public List<Movie> getMoviesReleasedAfter(int yearThreshold) {
-        return null;
+        return yearIndex.between((long) yearThreshold + 1, Integer.MAX_VALUE);
     }
 
-    /** Filtering #5: 영화 제목에 특정 키워드가 포함된 영화 목록 반환 */
+    /** Filtering #5: 영화 제목에 특정 키워드가 포함된 영화 목록 반환
+     * 제목 trigram 인덱스로 후보를 좁힌 뒤 후보만 비교합니다.
+     * */
     public List<Movie> getMoviesTitleContains(String keyword) {
-        return null;
+        return titleIndex.search(keyword, false);
+    }
+
+    /** Filtering #5 - 1: 대소문자 구분 없이 영화 제목에 특정 키워드가 포함된 영화 목록 반환 (자동 완성용) */
+    public List<Movie> getMoviesTitleContainsIgnoreCase(String keyword) {
+        return titleIndex.search(keyword, true);
     }
 
     /** Filtering #6: 감독 이름이 정확히 일치하는 영화 목록 반환 */
     public List<Movie> getMoviesByDirector(String director) {
-        return null;
+        return columns.withDirector(director);
     }
 
     /** Filtering #7: 흥행 수익이 일정 금액 이상인 영화 목록 반환 */
     public List<Movie> getMoviesWithBoxOfficeAbove(long minBoxOffice) {
-        return null;
+        return boxOfficeIndex.between(minBoxOffice, Long.MAX_VALUE);
     }
 
     /** Filtering #8: 상영 시간이 일정 범위 내에 있는 영화 목록 반환 */
     public List<Movie> getMoviesInDurationRange(int minDuration, int maxDuration) {
-        return null;
+        return durationIndex.between(minDuration, maxDuration);
     }
 
     /** Filtering #9: 평점이 일정 범위 내에 있는 영화 목록 반환 */
     public List<Movie> getMoviesWithRatingInRange(double minRating, double maxRating) {
-        return null;
+        return ratingIndex.between(MovieRangeIndex.sortableKey(minRating), MovieRangeIndex.sortableKey(maxRating));
     }
 
     /** Filtering #10: 개봉연도가 두 값 사이에 있는 영화 목록 반환 */
     public List<Movie> getMoviesBetweenYears(int startYear, int endYear) {
-        return null;
+        return yearIndex.between(startYear, endYear);
     }
 
     // ========================================================
@@ -130,56 +188,117 @@ public class MovieService {
 
     // ========================================================
     // C. Sorting (10개)
+    // 정렬 결과는 기준별로 만들어 둔 정렬 뷰를 그대로 감싼 읽기 전용 리스트입니다.
+    // 같은 순위의 영화는 오름차순에서는 추가된 순서, 내림차순에서는 그 반대 순서입니다.
     // ========================================================
 
     /** Sorting #1: 영화 제목 오름차순 정렬 */
     public List<Movie> getMoviesSortedByTitleAsc() {
-        return null;
+        return sortedView(MovieSortKey.TITLE).ascending();
     }
 
     /** Sorting #2: 영화 제목 내림차순 정렬 */
     public List<Movie> getMoviesSortedByTitleDesc() {
-        return null;
+        return sortedView(MovieSortKey.TITLE).descending();
     }
 
     /** Sorting #3: 평점 내림차순 정렬 */
     public List<Movie> getMoviesSortedByRatingDesc() {
-        return null;
+        return sortedView(MovieSortKey.RATING).descending();
     }
 
     /** Sorting #4: 개봉연도 오름차순 정렬 */
     public List<Movie> getMoviesSortedByYearAsc() {
-        return null;
+        return sortedView(MovieSortKey.YEAR).ascending();
     }
 
     /** Sorting #5: 흥행수익 내림차순 정렬 */
     public List<Movie> getMoviesSortedByBoxOfficeDesc() {
-        return null;
+        return sortedView(MovieSortKey.BOX_OFFICE).descending();
     }
 
     /** Sorting #6: 상영시간 오름차순 정렬 */
     public List<Movie> getMoviesSortedByDurationAsc() {
-        return null;
+        return sortedView(MovieSortKey.DURATION).ascending();
     }
 
     /** Sorting #7: 영화 장르 오름차순 정렬 */
     public List<Movie> getMoviesSortedByGenre() {
-        return null;
+        return sortedView(MovieSortKey.GENRE).ascending();
     }
 
     /** Sorting #8: 감독 이름 오름차순 정렬 */
     public List<Movie> getMoviesSortedByDirector() {
-        return null;
+        return sortedView(MovieSortKey.DIRECTOR).ascending();
     }
 
     /** Sorting #9: 평점 오름차순 정렬 */
     public List<Movie> getMoviesSortedByRatingAsc() {
-        return null;
+        return sortedView(MovieSortKey.RATING).ascending();
     }
 
     /** Sorting #10: 사용자가 제공한 Comparator로 정렬 (예: custom) */
     public List<Movie> sortMovies(Comparator<Movie> comparator) {
-        return null;
+        return columns.movies().stream()
+                .sorted(comparator)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Sorting #11: Comparator 기준으로 앞선 영화 k편만 반환
+     * 전체를 정렬하지 않고 크기 k의 힙만 유지하므로 O(N log k) 시간, O(k) 메모리로 처리합니다.
+     * 결과는 sortMovies(comparator)의 앞 k편과 같습니다.
+     * @param comparator 정렬 기준
+     * @param k 반환할 최대 영화 수
+     */
+    public List<Movie> topK(Comparator<Movie> comparator, int k) {
+        MovieTopK topK = new MovieTopK(comparator, boundedK(k));
+        for (int slot = 0; slot < columns.size(); slot++) {
+            topK.offer(columns.movieAt(slot), slot);
+        }
+        return topK.result();
+    }
+
+    /**
+     * Sorting #12: topK의 병렬 버전
+     * 공용 ForkJoinPool에서 구간별로 힙을 따로 모은 뒤 합칩니다. comparator는 여러 스레드에서 동시에 호출됩니다.
+     * @param comparator 정렬 기준
+     * @param k 반환할 최대 영화 수
+     */
+    public List<Movie> topKParallel(Comparator<Movie> comparator, int k) {
+        int bounded = boundedK(k);
+        List<Movie> movies = columns.movies();
+        return IntStream.range(0, movies.size()).parallel()
+                .collect(() -> new MovieTopK(comparator, bounded),
+                        (topK, slot) -> topK.offer(movies.get(slot), slot),
+                        MovieTopK::merge)
+                .result();
+    }
+
+    private int boundedK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        return Math.min(k, columns.size());
+    }
+
+    /**
+     * Sorting #13: 정렬 기준에 따른 한 페이지 분량의 영화 반환
+     * 정렬 뷰의 해당 구간만 감싼 읽기 전용 리스트를 돌려주므로 전체 목록을 복사하지 않습니다.
+     * @param key 정렬 기준
+     * @param descending true이면 내림차순
+     * @param offset 건너뛸 영화 수
+     * @param limit 최대 영화 수
+     */
+    public List<Movie> getMoviesSortedPage(MovieSortKey key, boolean descending, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative");
+        }
+        MovieSortedView view = sortedView(key);
+        List<Movie> sorted = descending ? view.descending() : view.ascending();
+        int from = Math.min(offset, sorted.size());
+        int to = (int) Math.min((long) from + limit, sorted.size());
+        return sorted.subList(from, to);
     }
 
     // ========================================================
@@ -188,66 +307,77 @@ public class MovieService {
 
     /** Reducing #1: 전체 영화 상영시간 합계 */
     public int getTotalDuration() {
-        return 0;
+        return (int) columns.sumDuration();
     }
 
     /** Reducing #2: 전체 영화 흥행수익 합계 */
     public long getTotalBoxOffice() {
-        return 0;
+        return columns.sumBoxOffice();
     }
 
     /** Reducing #3: 전체 영화의 평균 평점 계산 */
     public double getAverageRating() {
-        return 0;
+        return columns.size() == 0 ? 0 : columns.sumRating() / columns.size();
     }
 
     /** Reducing #4: 최고 평점을 가진 영화 반환 (Optional) */
     public Optional<Movie> getMaxRatingMovie() {
-        return null;
+        int slot = columns.maxRatingSlot();
+        return slot < 0 ? Optional.empty() : Optional.of(columns.movieAt(slot));
     }
 
     /** Reducing #5: 가장 오래된 개봉연도 찾기 */
     public int getEarliestYear() {
-        return 0;
+        return columns.size() == 0 ? 0 : columns.minYear();
     }
 
     /** Reducing #6: 전체 영화 평점 합계 */
     public double getSumOfRatings() {
-        return 0;
+        return columns.sumRating();
     }
 
     /** Reducing #7: 전체 영화 상영시간의 곱 (누적 곱 계산) */
     public long getProductOfDurations() {
-        return 0;
+        return columns.productOfDurations();
     }
 
     /** Reducing #8: 최고 흥행수익을 기록한 영화 반환 (Optional) */
     public Optional<Movie> getMaxBoxOfficeMovie() {
-        return null;
+        int slot = columns.maxBoxOfficeSlot();
+        return slot < 0 ? Optional.empty() : Optional.of(columns.movieAt(slot));
     }
 
     /** Reducing #9: 특정 장르 영화의 총 흥행수익 계산 */
     public long getTotalBoxOfficeByGenre(String genre) {
-        return 0;
+        return columns.sumBoxOfficeOfGenre(genre);
     }
 
     /** Reducing #10: 전체 영화의 평균 상영시간 계산 */
     public double getAverageDuration() {
-        return 0;
+        return columns.size() == 0 ? 0 : (double) columns.sumDuration() / columns.size();
+    }
+
+    /**
+     * Reducing #11: 위의 집계값을 한 번에 계산
+     * 요약 화면처럼 여러 집계값이 함께 필요할 때 목록을 한 번만 훑습니다. 장르별 흥행수익 합계도 포함됩니다.
+     */
+    public MovieStatistics getStatistics() {
+        return columns.statistics();
     }
 
     // ========================================================
     // E. Collecting / Grouping (10개)
+    // 그룹화 결과는 영화가 추가될 때 갱신되는 인덱스의 읽기 전용 뷰이며, 이후 추가된 영화도 반영됩니다.
     // ========================================================
 
     /** Grouping #1: 장르별 영화 목록 그룹화 */
     public Map<String, List<Movie>> groupMoviesByGenre() {
-        return null;
+        return moviesByGenre.view();
     }
 
     /** Grouping #2: 감독별 영화 목록 그룹화 */
     public Map<String, List<Movie>> groupMoviesByDirector() {
-        return null;
+        return moviesByDirector.view();
     }
 
     /** Grouping #3: 평점을 기준으로 partitioning (예: 평점이 4.7 이상과 미만) */
@@ -262,22 +392,29 @@ public class MovieService {
 
     /** Grouping #5: 각 장르별 영화 개수 계산 */
     public Map<String, Long> getGenreCount() {
-        return null;
+        return genreCountView;
     }
 
     /** Grouping #6: 개봉연도별 영화 목록 그룹화 */
     public Map<Integer, List<Movie>> groupMoviesByYear() {
-        return null;
+        return moviesByYear.view();
     }
 
     /** Grouping #7: 평점을 소수점 버림한 값(정수) 기준으로 그룹화 */
     public Map<Integer, List<Movie>> groupMoviesByRoundedRating() {
-        return null;
+        return moviesByRoundedRating.view();
     }
 
     /** Grouping #8: 상영시간 범주(예: 짧음: <120, 보통: 120~180, 김: >180) 기준으로 그룹화 */
     public Map<String, List<Movie>> groupMoviesByDurationCategory() {
-        return null;
+        return moviesByDurationCategory.view();
+    }
+
+    private static String durationCategory(Movie movie) {
+        if (movie.getDuration() < 120) {
+            return "Short";
+        }
+        return movie.getDuration() <= 180 ? "Medium" : "Long";
     }
 
     /**
@@ -285,14 +422,14 @@ public class MovieService {
      * (각 감독의 영화 목록을 List 대신 Set으로 수집하여 중복 없이 저장)
      */
     public Map<String, Set<Movie>> groupMoviesByDirectorSet() {
-        return null;
+        return movieSetsByDirector.view();
     }
 
     /** Grouping #10: 감독별 영화 제목 리스트 그룹화 (Map<Director, List<String>>)
      *  - 감독별로 해당 감독의 영화 제목만 모아서 리스트로 반환
      */
     public Map<String, List<String>> groupMovieTitlesByDirector() {
-        return null;
+        return titlesByDirector.view();
     }
 
     // ========================================================
@@ -332,7 +469,7 @@ public class MovieService {
      * 힌트: 기존에 작성하였던 함수를 활용해보자.
      * */
     public Supplier<List<Movie>> getMoviesSupplier() {
-        return null;
+        return moviesSupplier;
     }
 
     /** Supplier #5: Optional.orElseGet()를 활용하여 영화 반환, 없으면 기본 영화 반환 */
@@ -354,26 +491,67 @@ public class MovieService {
      * 힌트: 기존에 작성하였던 함수를 활용해보자.
      * */
     public Supplier<Double> supplyAverageRatingSupplier() {
-        return null;
+        return averageRatingSupplier;
     }
 
     /** Supplier #9: 전체 영화의 총 흥행수익을 Supplier로 반환
      * 힌트: 기존에 작성하였던 함수를 활용해보자.
      * */
     public Supplier<Long> supplyTotalBoxOfficeSupplier() {
-        return null;
+        return totalBoxOfficeSupplier;
     }
 
     /** Supplier #10: 제목 오름차순으로 정렬된 영화 목록을 Supplier로 반환
      * 힌트: 기존에 작성하였던 함수를 활용해보자.
      * */
     public Supplier<List<Movie>> supplySortedMoviesSupplier() {
-        return null;
+        return sortedMoviesSupplier;
+    }
+
+    // 영화 목록은 addMovie가 발행한 스냅샷을 그대로 돌려주므로 따로 기억해 둘 필요가 없습니다.
+    private final Supplier<List<Movie>> moviesSupplier = this::getMovies;
+    // 파생값 Supplier. 카탈로그 버전이 같은 동안은 계산해 둔 결과를 잠금 없이 돌려주고, 영화가 추가된 뒤 처음 get()할 때 다시 계산합니다.
+    private final Supplier<Double> averageRatingSupplier = versioned(this::getAverageRating);
+    private final Supplier<Long> totalBoxOfficeSupplier = versioned(this::getTotalBoxOffice);
+    // 정렬 뷰는 읽을 때 밀린 영화를 병합하므로 여러 스레드가 함께 쓸 수 없습니다. 발행된 스냅샷을 복사해서 정렬합니다.
+    private final Supplier<List<Movie>> sortedMoviesSupplier = versioned(() -> sortedCopy(snapshot, MovieSortKey.TITLE));
+
+    private <T> Supplier<T> versioned(Supplier<T> computation) {
+        return new VersionedSupplier<>(() -> catalogVersion, computation);
+    }
+
+    // 안정 정렬이므로 같은 순위의 영화는 getMoviesSortedByTitleAsc()처럼 추가된 순서를 유지합니다.
+    private static List<Movie> sortedCopy(List<Movie> movies, MovieSortKey key) {
+        List<Movie> sorted = new ArrayList<>(movies);
+        sorted.sort(key.comparator());
+        return Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * Supplier #11: 흥행수익에 비례해서 영화를 뽑는 샘플러 (추천용)
+     * 한 편을 뽑는 데 O(1)이며, 여러 스레드에서 동시에 뽑아도 됩니다.
+     */
+    public MovieSampler getBoxOfficeWeightedSampler() {
+        return boxOfficeSampler;
+    }
+
+    /** Supplier #12: 평점에 비례해서 영화를 뽑는 샘플러 (추천용) */
+    public MovieSampler getRatingWeightedSampler() {
+        return ratingSampler;
+    }
+
+    /**
+     * Supplier #13: 사용자가 제공한 가중치에 비례해서 영화를 뽑는 샘플러
+     * 샘플러마다 alias table을 따로 만들므로, 반환된 샘플러를 보관해서 재사용해야 합니다.
+     * @param weight 영화별 가중치 (0 이상)
+     */
+    public MovieSampler weightedSampler(ToDoubleFunction<Movie> weight) {
+        return new MovieSampler(columns, weight);
     }
 
 
-    // 추가: 전체 영화 목록 반환 (방어적 복사)
+    // 추가: 전체 영화 목록 반환 (읽기 전용 스냅샷, 복사 없음. 이후 영화가 추가되어도 내용이 바뀌지 않음)
     public List<Movie> getMovies() {
-        return new ArrayList<>(movies);
+        return snapshot;
     }
 }
@@ -0,0 +1,27 @@
+package org.speculatingwook.cinema;
+
+import java.util.Comparator;
+
+/**
+ * MovieService가 정렬된 뷰를 미리 만들어 두는 정렬 기준입니다.
+ * 각 기준은 오름차순 Comparator이며, 내림차순은 같은 뷰를 뒤에서부터 읽어서 처리합니다.
+ */
+public enum MovieSortKey {
+    TITLE(Comparator.comparing(Movie::getTitle)),
+    GENRE(Comparator.comparing(Movie::getGenre)),
+    DIRECTOR(Comparator.comparing(Movie::getDirector)),
+    YEAR(Comparator.comparingInt(Movie::getYear)),
+    RATING(Comparator.comparingDouble(Movie::getRating)),
+    DURATION(Comparator.comparingInt(Movie::getDuration)),
+    BOX_OFFICE(Comparator.comparingLong(Movie::getBoxOffice));
+
+    private final Comparator<Movie> comparator;
+
+    MovieSortKey(Comparator<Movie> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<Movie> comparator() {
+        return comparator;
+    }
+}
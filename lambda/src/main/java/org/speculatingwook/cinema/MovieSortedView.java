@@ -0,0 +1,97 @@
+package org.speculatingwook.cinema;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 한 정렬 기준으로 정렬해 둔 영화 목록입니다.
+ * <p>
+ * 처음 만들 때 한 번 정렬하고, 이후 추가된 영화는 모아 두었다가 다음 조회 때 그것만 정렬해서 병합합니다. (O(N + P log P))
+ * 조회 결과는 정렬된 배열을 감싼 읽기 전용 리스트이므로 복사가 일어나지 않습니다.
+ * 병합할 때는 항상 새 배열을 만들기 때문에, 이미 돌려준 리스트의 내용은 이후 영화가 추가되어도 바뀌지 않습니다.
+ * 같은 순위의 영화는 추가된 순서를 유지하며, 내림차순 뷰에서는 그 반대 순서가 됩니다.
+ * </p>
+ */
+class MovieSortedView {
+    private final Comparator<Movie> comparator;
+    private Movie[] sorted;
+    private Movie[] pending = new Movie[16];
+    private int pendingCount;
+
+    MovieSortedView(Comparator<Movie> comparator, Collection<Movie> movies) {
+        this.comparator = comparator;
+        this.sorted = movies.toArray(new Movie[0]);
+        Arrays.sort(sorted, comparator);
+    }
+
+    void add(Movie movie) {
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+        }
+        pending[pendingCount++] = movie;
+    }
+
+    /**
+     * @return 오름차순 읽기 전용 리스트
+     */
+    List<Movie> ascending() {
+        return new SortedList(merged(), false);
+    }
+
+    /**
+     * @return 내림차순 읽기 전용 리스트
+     */
+    List<Movie> descending() {
+        return new SortedList(merged(), true);
+    }
+
+    private Movie[] merged() {
+        if (pendingCount == 0) {
+            return sorted;
+        }
+        Movie[] added = Arrays.copyOf(pending, pendingCount);
+        Arrays.sort(added, comparator);
+        Movie[] result = new Movie[sorted.length + added.length];
+        int left = 0;
+        int right = 0;
+        for (int out = 0; out < result.length; out++) {
+            // 순위가 같으면 먼저 추가된 쪽(기존 영화)이 앞에 옵니다.
+            if (right >= added.length || (left < sorted.length && comparator.compare(sorted[left], added[right]) <= 0)) {
+                result[out] = sorted[left++];
+            } else {
+                result[out] = added[right++];
+            }
+        }
+        sorted = result;
+        Arrays.fill(pending, 0, pendingCount, null);
+        pendingCount = 0;
+        return result;
+    }
+
+    private static class SortedList extends AbstractList<Movie> implements RandomAccess {
+        private final Movie[] movies;
+        private final boolean reversed;
+
+        SortedList(Movie[] movies, boolean reversed) {
+            this.movies = movies;
+            this.reversed = reversed;
+        }
+
+        @Override
+        public Movie get(int index) {
+            if (index < 0 || index >= movies.length) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + movies.length);
+            }
+            return movies[reversed ? movies.length - 1 - index : index];
+        }
+
+        @Override
+        public int size() {
+            return movies.length;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.speculatingwook.cinema;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+
+/**
+ * 영화 목록의 집계값을 한 번에 모으는 누산기입니다.
+ * <p>
+ * MovieService의 Reducing 메서드들이 각자 전체 목록을 훑는 대신, 한 번 훑으면서 상영시간/흥행수익/평점 합계,
+ * 가장 이른 개봉 연도, 최고 평점/최고 흥행 영화, 장르별 흥행수익 합계를 모두 구합니다.
+ * IntSummaryStatistics처럼 {@link #combine(MovieStatistics)}로 합칠 수 있으므로 병렬 스트림에서도 쓸 수 있습니다.
+ * </p>
+ * <pre>
+ * MovieStatistics statistics = movies.parallelStream().collect(MovieStatistics.collector());
+ * Map&lt;String, MovieStatistics&gt; byGenre = movies.stream()
+ *         .collect(Collectors.groupingBy(Movie::getGenre, MovieStatistics.collector()));
+ * </pre>
+ * 최고 평점/최고 흥행 영화가 여럿이면 먼저 나온 영화를 남깁니다. 이 클래스는 스레드 안전하지 않습니다.
+ */
+public class MovieStatistics implements Consumer<Movie> {
+    private long count;
+    private long totalDuration;
+    private long totalBoxOffice;
+    private double sumOfRatings;
+    private int earliestYear = Integer.MAX_VALUE;
+    private Movie maxRatingMovie;
+    private Movie maxBoxOfficeMovie;
+    private final Map<String, Long> boxOfficeByGenre;
+
+    public MovieStatistics() {
+        this.boxOfficeByGenre = new HashMap<>();
+    }
+
+    // MovieColumns가 열 배열에서 한 번에 계산한 값으로 만듭니다.
+    MovieStatistics(long count, long totalDuration, long totalBoxOffice, double sumOfRatings, int earliestYear,
+                    Movie maxRatingMovie, Movie maxBoxOfficeMovie, Map<String, Long> boxOfficeByGenre) {
+        this.count = count;
+        this.totalDuration = totalDuration;
+        this.totalBoxOffice = totalBoxOffice;
+        this.sumOfRatings = sumOfRatings;
+        this.earliestYear = earliestYear;
+        this.maxRatingMovie = maxRatingMovie;
+        this.maxBoxOfficeMovie = maxBoxOfficeMovie;
+        this.boxOfficeByGenre = boxOfficeByGenre;
+    }
+
+    public static Collector<Movie, MovieStatistics, MovieStatistics> collector() {
+        return Collector.of(MovieStatistics::new, MovieStatistics::accept, MovieStatistics::combine,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    @Override
+    public void accept(Movie movie) {
+        count++;
+        totalDuration += movie.getDuration();
+        totalBoxOffice += movie.getBoxOffice();
+        sumOfRatings += movie.getRating();
+        earliestYear = Math.min(earliestYear, movie.getYear());
+        if (maxRatingMovie == null || Double.compare(movie.getRating(), maxRatingMovie.getRating()) > 0) {
+            maxRatingMovie = movie;
+        }
+        if (maxBoxOfficeMovie == null || movie.getBoxOffice() > maxBoxOfficeMovie.getBoxOffice()) {
+            maxBoxOfficeMovie = movie;
+        }
+        boxOfficeByGenre.merge(movie.getGenre(), movie.getBoxOffice(), Long::sum);
+    }
+
+    /**
+     * other의 집계를 이 누산기에 합칩니다. other는 이 누산기보다 뒤에 나온 영화들을 모은 것이어야
+     * 동점일 때 먼저 나온 영화를 남기는 규칙이 유지됩니다.
+     * @return 이 누산기
+     */
+    public MovieStatistics combine(MovieStatistics other) {
+        count += other.count;
+        totalDuration += other.totalDuration;
+        totalBoxOffice += other.totalBoxOffice;
+        sumOfRatings += other.sumOfRatings;
+        earliestYear = Math.min(earliestYear, other.earliestYear);
+        if (other.maxRatingMovie != null && (maxRatingMovie == null
+                || Double.compare(other.maxRatingMovie.getRating(), maxRatingMovie.getRating()) > 0)) {
+            maxRatingMovie = other.maxRatingMovie;
+        }
+        if (other.maxBoxOfficeMovie != null && (maxBoxOfficeMovie == null
+                || other.maxBoxOfficeMovie.getBoxOffice() > maxBoxOfficeMovie.getBoxOffice())) {
+            maxBoxOfficeMovie = other.maxBoxOfficeMovie;
+        }
+        other.boxOfficeByGenre.forEach((genre, boxOffice) -> boxOfficeByGenre.merge(genre, boxOffice, Long::sum));
+        return this;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    public long getTotalBoxOffice() {
+        return totalBoxOffice;
+    }
+
+    public double getSumOfRatings() {
+        return sumOfRatings;
+    }
+
+    /**
+     * @return 평균 평점, 영화가 없으면 0
+     */
+    public double getAverageRating() {
+        return count == 0 ? 0 : sumOfRatings / count;
+    }
+
+    /**
+     * @return 평균 상영시간, 영화가 없으면 0
+     */
+    public double getAverageDuration() {
+        return count == 0 ? 0 : (double) totalDuration / count;
+    }
+
+    /**
+     * @return 가장 이른 개봉 연도, 영화가 없으면 0
+     */
+    public int getEarliestYear() {
+        return count == 0 ? 0 : earliestYear;
+    }
+
+    public Optional<Movie> getMaxRatingMovie() {
+        return Optional.ofNullable(maxRatingMovie);
+    }
+
+    public Optional<Movie> getMaxBoxOfficeMovie() {
+        return Optional.ofNullable(maxBoxOfficeMovie);
+    }
+
+    public long getTotalBoxOfficeByGenre(String genre) {
+        return boxOfficeByGenre.getOrDefault(genre, 0L);
+    }
+
+    /**
+     * @return 장르 -> 흥행수익 합계의 읽기 전용 맵
+     */
+    public Map<String, Long> getTotalBoxOfficeByGenre() {
+        return Collections.unmodifiableMap(boxOfficeByGenre);
+    }
+
+    @Override
+    public String toString() {
+        return "MovieStatistics{" +
+                "count=" + count +
+                ", totalDuration=" + totalDuration +
+                ", totalBoxOffice=" + totalBoxOffice +
+                ", averageRating=" + getAverageRating() +
+                ", earliestYear=" + getEarliestYear() +
+                '}';
+    }
+}
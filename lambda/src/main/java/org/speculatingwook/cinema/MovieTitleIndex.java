@@ -0,0 +1,136 @@
+package org.speculatingwook.cinema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 영화 제목의 부분 문자열 검색용 trigram 인덱스입니다.
+ * <p>
+ * 제목을 대소문자 구분 없이 비교할 수 있도록 글자 단위로 접은(fold) 문자열을 추가할 때 한 번만 만들어 두고,
+ * 접은 제목의 연속한 세 글자(trigram)마다 그 trigram을 가진 영화의 칸 번호 목록을 둡니다.
+ * 검색어가 세 글자 이상이면 검색어의 trigram 목록들을 교집합해서 후보를 좁힌 뒤 후보만 실제로 비교합니다.
+ * 세 글자 미만이면 접어 둔 제목들을 훑습니다. 어느 경우에도 조회 때 영화마다 toLowerCase를 호출하지 않습니다.
+ * </p>
+ * <p>
+ * 접기는 글자마다 {@code Character.toLowerCase(Character.toUpperCase(c))}로 하므로 문자열 길이가 바뀌지 않고,
+ * 원래 제목에 검색어가 들어 있으면 접은 제목에도 접은 검색어가 반드시 들어 있습니다.
+ * 결과는 추가된 순서입니다. 단일 스레드에서 사용하는 것을 전제로 합니다.
+ * </p>
+ */
+class MovieTitleIndex {
+    private static final int GRAM = 3;
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final List<Movie> movies = new ArrayList<>();
+    private final List<String> foldedTitles = new ArrayList<>();
+
+    void add(Movie movie) {
+        int slot = movies.size();
+        String folded = fold(movie.getTitle());
+        movies.add(movie);
+        foldedTitles.add(folded);
+        for (int i = 0; i + GRAM <= folded.length(); i++) {
+            Postings slots = postings.computeIfAbsent(gram(folded, i), g -> new Postings());
+            // 같은 제목에 같은 trigram이 여러 번 나와도 칸 번호는 한 번만 넣습니다.
+            if (slots.size == 0 || slots.slots[slots.size - 1] != slot) {
+                slots.add(slot);
+            }
+        }
+    }
+
+    /**
+     * @param keyword 검색어
+     * @param ignoreCase true이면 대소문자를 구분하지 않습니다.
+     * @return 제목에 검색어가 들어 있는 영화들 (추가된 순서)
+     */
+    List<Movie> search(String keyword, boolean ignoreCase) {
+        String foldedKeyword = fold(keyword);
+        List<Movie> result = new ArrayList<>();
+        if (foldedKeyword.length() < GRAM) {
+            for (int slot = 0; slot < movies.size(); slot++) {
+                if (matches(slot, keyword, foldedKeyword, ignoreCase)) {
+                    result.add(movies.get(slot));
+                }
+            }
+            return result;
+        }
+        int[] candidates = candidates(foldedKeyword);
+        for (int slot : candidates) {
+            if (matches(slot, keyword, foldedKeyword, ignoreCase)) {
+                result.add(movies.get(slot));
+            }
+        }
+        return result;
+    }
+
+    private boolean matches(int slot, String keyword, String foldedKeyword, boolean ignoreCase) {
+        return ignoreCase
+                ? foldedTitles.get(slot).contains(foldedKeyword)
+                : movies.get(slot).getTitle().contains(keyword);
+    }
+
+    // 검색어의 모든 trigram을 가진 칸 번호들. 짧은 목록부터 교집합해서 중간 결과를 작게 유지합니다.
+    private int[] candidates(String foldedKeyword) {
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= foldedKeyword.length(); i++) {
+            Postings slots = postings.get(gram(foldedKeyword, i));
+            if (slots == null) {
+                return new int[0];
+            }
+            lists.add(slots);
+        }
+        lists.sort(Comparator.comparingInt(slots -> slots.size));
+        Postings first = lists.get(0);
+        int[] candidates = Arrays.copyOf(first.slots, first.size);
+        int count = candidates.length;
+        for (int l = 1; l < lists.size() && count > 0; l++) {
+            count = intersect(candidates, count, lists.get(l));
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    // candidates[0, count)와 slots의 교집합을 candidates 앞쪽에 남기고 그 크기를 돌려줍니다. 둘 다 오름차순입니다.
+    private static int intersect(int[] candidates, int count, Postings slots) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < slots.size; i++) {
+            int candidate = candidates[i];
+            while (j < slots.size && slots.slots[j] < candidate) {
+                j++;
+            }
+            if (j < slots.size && slots.slots[j] == candidate) {
+                candidates[kept++] = candidate;
+            }
+        }
+        return kept;
+    }
+
+    private static long gram(String text, int from) {
+        return ((long) text.charAt(from) << 32) | ((long) text.charAt(from + 1) << 16) | text.charAt(from + 2);
+    }
+
+    static String fold(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    // 오름차순 칸 번호 목록
+    private static class Postings {
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.speculatingwook.cinema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 비교 기준에서 앞선 영화 k편만 남기는 크기 제한 힙입니다.
+ * <p>
+ * 힙의 루트에는 지금까지 남긴 영화 중 가장 뒤처지는 영화가 오므로, 새 영화는 루트와 한 번만 비교해서
+ * 버리거나 루트를 밀어내고 들어갑니다. N편을 훑는 데 O(N log k) 시간과 O(k) 메모리가 듭니다.
+ * 순위가 같으면 먼저 나온(순번이 작은) 영화가 앞서므로 결과는 stable 정렬 후 앞에서 k편을 자른 것과 같습니다.
+ * 각 부분을 따로 모은 뒤 {@link #merge(MovieTopK)}로 합칠 수 있어 병렬 스트림의 수집기로도 쓸 수 있습니다.
+ * </p>
+ */
+class MovieTopK {
+    private final Comparator<Movie> comparator;
+    private final int k;
+    private final Movie[] movies;
+    private final int[] sequences;
+    private int size;
+
+    MovieTopK(Comparator<Movie> comparator, int k) {
+        this.comparator = comparator;
+        this.k = k;
+        this.movies = new Movie[k];
+        this.sequences = new int[k];
+    }
+
+    /**
+     * @param sequence 영화의 순번 (순위가 같을 때 작은 쪽이 앞섭니다)
+     */
+    void offer(Movie movie, int sequence) {
+        if (k == 0) {
+            return;
+        }
+        if (size < k) {
+            movies[size] = movie;
+            sequences[size] = sequence;
+            siftUp(size++);
+        } else if (compare(movie, sequence, movies[0], sequences[0]) < 0) {
+            movies[0] = movie;
+            sequences[0] = sequence;
+            siftDown(0);
+        }
+    }
+
+    void merge(MovieTopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.movies[i], other.sequences[i]);
+        }
+    }
+
+    /**
+     * @return 남은 영화들을 앞선 순서대로 담은 리스트
+     */
+    List<Movie> result() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compare(movies[a], sequences[a], movies[b], sequences[b]));
+        List<Movie> result = new ArrayList<>(size);
+        for (int i : order) {
+            result.add(movies[i]);
+        }
+        return result;
+    }
+
+    private int compare(Movie a, int sequenceA, Movie b, int sequenceB) {
+        int result = comparator.compare(a, b);
+        return result != 0 ? result : Integer.compare(sequenceA, sequenceB);
+    }
+
+    // 루트가 가장 뒤처지는 영화가 되도록 유지합니다.
+    private boolean behind(int i, int j) {
+        return compare(movies[i], sequences[i], movies[j], sequences[j]) > 0;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!behind(i, parent)) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && behind(child + 1, child)) {
+                child++;
+            }
+            if (!behind(child, i)) {
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Movie movie = movies[i];
+        movies[i] = movies[j];
+        movies[j] = movie;
+        int sequence = sequences[i];
+        sequences[i] = sequences[j];
+        sequences[j] = sequence;
+    }
+}
@@ -0,0 +1,60 @@
+package org.speculatingwook.cinema;
+
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 카탈로그 버전이 바뀔 때까지 계산 결과를 기억하는 Supplier입니다.
+ * <p>
+ * 결과와 그 결과를 계산할 때의 버전을 한 객체로 묶어 volatile 필드 하나로 공개합니다.
+ * 버전이 같으면 get()은 volatile 읽기 두 번과 비교 한 번으로 끝나며 잠금을 잡지 않습니다.
+ * 버전이 바뀌었을 때만 잠금을 잡고 다시 계산하므로, 여러 스레드가 동시에 get()해도 계산은 한 번만 일어납니다.
+ * </p>
+ * <p>
+ * 버전은 계산 전에 읽습니다. 계산 도중 버전이 올라가면 그보다 새로운 결과가 예전 버전으로 기록될 뿐이고,
+ * 다음 get()에서 버전이 달라 다시 계산하므로 오래된 결과를 새 버전으로 돌려주는 일은 없습니다.
+ * 계산 결과는 여러 호출자가 함께 받으므로 바꿀 수 없는 값이어야 합니다.
+ * 계산은 이 Supplier의 잠금으로만 직렬화되므로, 다른 호출 경로와 함께 쓰는 변경 가능한 구조를 읽으면서 고치면 안 됩니다.
+ * </p>
+ * @param <T> 결과 타입
+ */
+class VersionedSupplier<T> implements Supplier<T> {
+    private final LongSupplier version;
+    private final Supplier<T> computation;
+    private volatile Stamped<T> cached;
+
+    VersionedSupplier(LongSupplier version, Supplier<T> computation) {
+        this.version = version;
+        this.computation = computation;
+    }
+
+    @Override
+    public T get() {
+        long current = version.getAsLong();
+        Stamped<T> stamped = cached;
+        if (stamped != null && stamped.version == current) {
+            return stamped.value;
+        }
+        return recompute();
+    }
+
+    private synchronized T recompute() {
+        long current = version.getAsLong();
+        Stamped<T> stamped = cached;
+        if (stamped == null || stamped.version != current) {
+            stamped = new Stamped<>(current, computation.get());
+            cached = stamped;
+        }
+        return stamped.value;
+    }
+
+    private static class Stamped<T> {
+        private final long version;
+        private final T value;
+
+        Stamped(long version, T value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
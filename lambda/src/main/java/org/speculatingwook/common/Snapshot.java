@@ -0,0 +1,77 @@
+package org.speculatingwook.common;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * 특정 시점의 목록을 복사 없이 보여주는 읽기 전용 리스트입니다.
+ * <p>
+ * 배열과 길이만 들고 있으며, 배열의 [0, size) 칸은 만든 뒤로 바뀌지 않는다는 것을 전제로 합니다.
+ * 목록에 항목이 추가되어도 이미 받은 스냅샷의 내용은 그대로이므로 여러 스레드에서 잠금 없이 순회, 스트림, 인덱스 조회를 할 수 있습니다.
+ * 수정 메서드는 UnsupportedOperationException을 던집니다.
+ * </p>
+ * @param <E> 항목 타입
+ */
+public final class Snapshot<E> extends AbstractList<E> implements RandomAccess {
+    private static final Snapshot<?> EMPTY = new Snapshot<>(new Object[0], 0);
+
+    private final Object[] elements;
+    private final int size;
+
+    private Snapshot(Object[] elements, int size) {
+        this.elements = elements;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> Snapshot<E> empty() {
+        return (Snapshot<E>) EMPTY;
+    }
+
+    /**
+     * 배열의 앞 size칸을 감싼 스냅샷을 만듭니다. 배열을 복사하지 않으므로, 호출한 쪽은 이후 그 칸들을 바꾸면 안 됩니다.
+     * (뒤쪽 빈 칸에 항목을 추가하는 것은 괜찮습니다.)
+     */
+    public static <E> Snapshot<E> of(Object[] elements, int size) {
+        if (size < 0 || size > elements.length) {
+            throw new IllegalArgumentException("size " + size + " out of array length " + elements.length);
+        }
+        return new Snapshot<>(elements, size);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        return (E) elements[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        for (int i = 0; i < size; i++) {
+            action.accept((E) elements[i]);
+        }
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator(elements, 0, size, Spliterator.ORDERED | Spliterator.IMMUTABLE);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+}
@@ -0,0 +1,66 @@
+package org.speculatingwook.common;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * 항목을 뒤에 추가하고 바뀔 때마다 {@link Snapshot}을 발행하는 리스트입니다.
+ * <p>
+ * 추가는 배열의 빈 칸에만 쓰므로 이미 발행한 스냅샷과 배열을 함께 써도 스냅샷의 내용은 바뀌지 않습니다.
+ * 배열은 공간이 모자랄 때와 정렬할 때만 새로 만들고, 기존 배열은 이전 스냅샷들이 계속 씁니다.
+ * 따라서 {@link #snapshot()}은 복사 없이 O(1)이며, 발행은 volatile 필드 하나로 하므로 어느 스레드에서나 호출할 수 있습니다.
+ * 추가와 정렬은 한 스레드에서만 해야 합니다. 중간 삭제와 교체는 지원하지 않습니다.
+ * </p>
+ * @param <E> 항목 타입
+ */
+public class SnapshotList<E> extends AbstractList<E> implements RandomAccess {
+    private Object[] elements = new Object[16];
+    private int size;
+    private volatile Snapshot<E> snapshot = Snapshot.empty();
+
+    @Override
+    public boolean add(E element) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = element;
+        modCount++;
+        snapshot = Snapshot.of(elements, size);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        return (E) elements[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 발행된 스냅샷의 배열은 건드리지 않도록 새 배열에 정렬합니다.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> comparator) {
+        Object[] sorted = Arrays.copyOf(elements, elements.length);
+        Arrays.sort((E[]) sorted, 0, size, comparator);
+        elements = sorted;
+        modCount++;
+        snapshot = Snapshot.of(elements, size);
+    }
+
+    /**
+     * @return 현재 목록의 읽기 전용 스냅샷 (복사 없음)
+     */
+    public Snapshot<E> snapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,180 @@
+package org.speculatingwook.library;
+
+import java.util.*;
+
+/**
+ * 저자 -> 책 목록 인덱스입니다.
+ * <p>
+ * 저자마다 책의 ordinal 목록({@link OrdinalBucket})을 두고, 조회할 때 발행된 버전에서 책을 꺼냅니다.
+ * 책이 교체되어도 ordinal은 그대로이므로 저자가 같은 교체는 인덱스를 건드리지 않고 O(1)에 끝나며,
+ * 저자가 바뀐 경우에만 새 저자의 목록에 ordinal을 넣습니다.
+ * 가장 많은 책을 쓴 저자도 함께 추적합니다. 선두 저자의 책이 빠지는 경우에만
+ * 다음 조회 때 저자 수만큼 다시 훑어 선두를 찾습니다.
+ * </p>
+ */
+class AuthorIndex {
+    private final BookStore store;
+    private final Map<String, OrdinalBucket> buckets = new HashMap<>();
+    // 목록에서 ordinal을 정리해 지운 마지막 시점의 발행 버전 번호. 이보다 오래된 버전은 목록만으로는 다 찾을 수 없습니다.
+    private long droppedAt = Long.MIN_VALUE;
+
+    private String leader;
+    private boolean leaderStale;
+
+    AuthorIndex(BookStore store) {
+        this.store = store;
+    }
+
+    /**
+     * ordinal 칸에 들어간 책을 반영합니다. 발행 전에 호출해도 되며, 발행되기 전까지는 조회 결과에 나오지 않습니다.
+     */
+    synchronized void add(int ordinal, Book book) {
+        String author = book.getAuthor();
+        OrdinalBucket bucket = buckets.computeIfAbsent(author, key -> new OrdinalBucket());
+        bucket.add(ordinal);
+        if (!leaderStale && (leader == null || bucket.live() > count(leader))) {
+            leader = author;
+        }
+    }
+
+    /**
+     * ordinal 칸의 책이 old에서 updated로 바뀐 것을 반영합니다. 저자가 같으면 할 일이 없습니다.
+     * 발행 전에 호출해야 합니다. 발행된 버전이 old를 보는 동안에도 old의 저자 목록에 ordinal이 남아 있어야 하기 때문입니다.
+     */
+    synchronized void replace(int ordinal, Book old, Book updated) {
+        String author = old.getAuthor();
+        if (Objects.equals(author, updated.getAuthor())) {
+            return;
+        }
+        OrdinalBucket bucket = buckets.get(author);
+        CatalogVersion published = store.current();
+        boolean dropped = bucket.leave(candidate -> wrote(published, candidate, author)
+                || Objects.equals(author, store.bookAt(candidate).getAuthor()));
+        if (dropped) {
+            droppedAt = published.number();
+            if (bucket.isEmpty()) {
+                buckets.remove(author);
+            }
+        }
+        if (Objects.equals(author, leader)) {
+            leaderStale = true;
+        }
+        add(ordinal, updated);
+    }
+
+    // version에서 ordinal 칸의 책이 author의 책인지
+    private static boolean wrote(CatalogVersion version, int ordinal, String author) {
+        return ordinal < version.ordinalCount() && Objects.equals(author, version.bookAt(ordinal).getAuthor());
+    }
+
+    private int count(String author) {
+        OrdinalBucket bucket = buckets.get(author);
+        return bucket == null ? 0 : bucket.live();
+    }
+
+    /**
+     * @return 저자의 책 수 (발행 전에 반영한 책 포함)
+     */
+    synchronized int countOf(String author) {
+        return count(author);
+    }
+
+    /**
+     * @return 현재 발행된 버전에서 저자의 책 리스트 (수정 불가, 책 목록 순서)
+     */
+    synchronized List<Book> booksOf(String author) {
+        return booksOf(author, store.current());
+    }
+
+    private List<Book> booksOf(String author, CatalogVersion version) {
+        OrdinalBucket bucket = buckets.get(author);
+        List<Book> books = new ArrayList<>();
+        if (version.number() < droppedAt) {
+            // 정리로 빠진 ordinal이 있을 수 있으므로 버전 전체에서 찾습니다.
+            for (Book book : version.books()) {
+                if (Objects.equals(author, book.getAuthor())) {
+                    books.add(book);
+                }
+            }
+        } else if (bucket != null) {
+            bucket.collect(version, book -> Objects.equals(author, book.getAuthor()), books);
+        }
+        return books.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(books);
+    }
+
+    /**
+     * version 시점의 저자 -> 책 리스트 맵을 읽기 전용 뷰로 돌려줍니다.
+     * get은 그 저자의 책만 꺼내고, 전체를 순회하는 연산은 처음 한 번 맵 전체를 만들어 둡니다.
+     */
+    Map<String, List<Book>> view(CatalogVersion version) {
+        return new VersionView(version);
+    }
+
+    synchronized String leader() {
+        if (leaderStale) {
+            leader = buckets.entrySet().stream()
+                    .max(Comparator.comparingInt(entry -> entry.getValue().live()))
+                    .map(Map.Entry::getKey)
+                    .orElse(null);
+            leaderStale = false;
+        }
+        return leader;
+    }
+
+    private class VersionView extends AbstractMap<String, List<Book>> {
+        private final CatalogVersion version;
+        private volatile Map<String, List<Book>> materialized;
+
+        private VersionView(CatalogVersion version) {
+            this.version = version;
+        }
+
+        @Override
+        public List<Book> get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            List<Book> books;
+            synchronized (AuthorIndex.this) {
+                books = booksOf((String) key, version);
+            }
+            return books.isEmpty() ? null : books;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<String, List<Book>>> entrySet() {
+            Map<String, List<Book>> all = materialized;
+            if (all == null) {
+                all = Collections.unmodifiableMap(materialize());
+                materialized = all;
+            }
+            return all.entrySet();
+        }
+
+        private Map<String, List<Book>> materialize() {
+            Map<String, List<Book>> all = new HashMap<>();
+            synchronized (AuthorIndex.this) {
+                if (version.number() < droppedAt) {
+                    // 정리로 빠진 ordinal이 있을 수 있으므로 버전 전체를 한 번 훑어 묶습니다.
+                    for (Book book : version.books()) {
+                        all.computeIfAbsent(book.getAuthor(), author -> new ArrayList<>()).add(book);
+                    }
+                    all.replaceAll((author, books) -> Collections.unmodifiableList(books));
+                    return all;
+                }
+                buckets.forEach((author, bucket) -> {
+                    List<Book> books = booksOf(author, version);
+                    if (!books.isEmpty()) {
+                        all.put(author, books);
+                    }
+                });
+            }
+            return all;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.speculatingwook.library;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * 책 ordinal별 대출 가능 여부를 비트로 저장하는 비트맵입니다.
+ * <p>
+ * 64권의 상태를 long 하나로 다루므로 개수 세기나 목록 구분을 워드 단위 비트 연산으로 처리할 수 있습니다.
+ * 비트는 고정 크기 페이지(AtomicLongArray)에 나누어 저장합니다. 용량이 늘어날 때는 페이지 배열만
+ * 새로 만들고 기존 페이지는 그대로 공유하므로, 확장 중에도 다른 스레드의 비트 변경이 유실되지 않습니다.
+ * </p>
+ */
+class AvailabilityBitmap {
+    private static final int WORDS_PER_PAGE = 1024;
+    private static final int BITS_PER_PAGE = WORDS_PER_PAGE * Long.SIZE;
+
+    private volatile AtomicLongArray[] pages = new AtomicLongArray[0];
+
+    synchronized void ensureCapacity(int bits) {
+        AtomicLongArray[] current = pages;
+        int required = (bits + BITS_PER_PAGE - 1) / BITS_PER_PAGE;
+        if (required <= current.length) {
+            return;
+        }
+        AtomicLongArray[] grown = new AtomicLongArray[Math.max(required, current.length * 2)];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        for (int i = current.length; i < grown.length; i++) {
+            grown[i] = new AtomicLongArray(WORDS_PER_PAGE);
+        }
+        pages = grown;
+    }
+
+    void set(int bit, boolean value) {
+        AtomicLongArray page = pages[bit / BITS_PER_PAGE];
+        int word = (bit % BITS_PER_PAGE) >>> 6;
+        long mask = 1L << bit;
+        long prev;
+        long next;
+        do {
+            prev = page.get(word);
+            next = value ? prev | mask : prev & ~mask;
+        } while (prev != next && !page.compareAndSet(word, prev, next));
+    }
+
+    boolean get(int bit) {
+        AtomicLongArray[] current = pages;
+        int pageIndex = bit / BITS_PER_PAGE;
+        if (pageIndex >= current.length) {
+            return false;
+        }
+        return (current[pageIndex].get((bit % BITS_PER_PAGE) >>> 6) & (1L << bit)) != 0;
+    }
+
+    /**
+     * @return 켜져 있는 비트 수
+     */
+    int cardinality() {
+        int count = 0;
+        for (AtomicLongArray page : pages) {
+            for (int i = 0; i < WORDS_PER_PAGE; i++) {
+                count += Long.bitCount(page.get(i));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * [0, size) 범위에서 비트 값이 value인 위치를 오름차순으로 넘겨줍니다.
+     */
+    void forEach(int size, boolean value, IntConsumer action) {
+        AtomicLongArray[] current = pages;
+        int words = (size + Long.SIZE - 1) >>> 6;
+        for (int w = 0; w < words; w++) {
+            long word = current[w / WORDS_PER_PAGE].get(w % WORDS_PER_PAGE);
+            if (!value) {
+                word = ~word;
+            }
+            int base = w << 6;
+            if (base + Long.SIZE > size) {
+                // 마지막 워드에서 size 이후의 비트는 버립니다.
+                word &= -1L >>> (Long.SIZE - (size - base));
+            }
+            while (word != 0) {
+                action.accept(base + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+}
@@ -1,23 +1,44 @@
 package org.speculatingwook.library;
 
 import java.time.LocalDate;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Book {
     private String title;
     private String author;
     private String isbn;
     private LocalDate publishDate;
-    private List<String> categories;
-    private boolean isAvailable;
+    // 카테고리. 서비스에 추가되기 전에는 이름을, 추가된 뒤에는 그 서비스의 CategoryDictionary id를 들고 있습니다.
+    private volatile Categories categories;
+    private List<String> categoryView;
+    // 대출 상태. LibraryService는 이 책의 모니터 안에서 바꾸며, 밖에서 직접 바꾸는 경우에도 값이 깨지지 않도록 원자적으로 관리합니다.
+    private final AtomicBoolean isAvailable = new AtomicBoolean(true);
+    // LibraryService에서 이 책 자리를 이어받은 책. 교체 뒤에 이 책으로 들어온 대출/반납을 넘겨주는 데 쓰며, 이 책의 모니터 안에서만 읽고 씁니다.
+    private Book replacedBy;
 
     public Book(String title, String author, String isbn, LocalDate publishDate, List<String> categories) {
         this.title = title;
         this.author = author;
         this.isbn = isbn;
         this.publishDate = publishDate;
-        this.categories = categories;
-        this.isAvailable = true;
+        String[] names = categories == null ? new String[0] : categories.toArray(new String[0]);
+        for (int i = 0; i < names.length; i++) {
+            int index = i;
+            Objects.requireNonNull(names[i], () -> "categories must not contain null (index " + index + "): " + categories);
+        }
+        this.categories = new Categories(null, null, names);
+    }
+
+    // 이미 dictionary의 id로 인코딩된 카테고리로 책을 만듭니다. (스냅샷 적재용)
+    Book(String title, String author, String isbn, LocalDate publishDate, CategoryDictionary dictionary, int[] categoryIds) {
+        this.title = title;
+        this.author = author;
+        this.isbn = isbn;
+        this.publishDate = publishDate;
+        this.categories = new Categories(dictionary, categoryIds, null);
     }
 
     // Getters and setters
@@ -25,9 +46,54 @@ public class Book {
     public String getAuthor() { return author; }
     public String getIsbn() { return isbn; }
     public LocalDate getPublishDate() { return publishDate; }
-    public List<String> getCategories() { return categories; }
-    public boolean isAvailable() { return isAvailable; }
-    public void setAvailable(boolean available) { isAvailable = available; }
+    public List<String> getCategories() {
+        List<String> view = categoryView;
+        if (view == null) {
+            // 뷰는 상태 없이 이 책의 카테고리를 읽기만 하므로 여러 스레드가 동시에 만들어도 됩니다.
+            view = new CategoryList();
+            categoryView = view;
+        }
+        return view;
+    }
+    public boolean isAvailable() { return isAvailable.get(); }
+    public void setAvailable(boolean available) { isAvailable.set(available); }
+
+    /**
+     * 현재 대출 상태가 expected일 때만 newValue로 바꿉니다.
+     * @return 상태 변경 성공 여부
+     */
+    public boolean compareAndSetAvailable(boolean expected, boolean newValue) {
+        return isAvailable.compareAndSet(expected, newValue);
+    }
+
+    /**
+     * dictionary 기준의 카테고리 id를 돌려줍니다.
+     * 아직 어느 사전에도 인코딩되지 않은 책이면 이번 사전으로 인코딩해 두고 이름 배열은 버리므로,
+     * 같은 카테고리 문자열이 책마다 따로 남지 않습니다. 다른 사전으로 물으면 그때마다 인코딩합니다.
+     */
+    int[] getCategoryIds(CategoryDictionary dictionary) {
+        Categories current = categories;
+        if (current.dictionary == dictionary) {
+            return current.ids;
+        }
+        int[] ids = dictionary.encode(current.names());
+        if (current.dictionary == null) {
+            categories = new Categories(dictionary, ids, null);
+        }
+        return ids;
+    }
+
+    Book getReplacedBy() { return replacedBy; }
+    void setReplacedBy(Book replacedBy) { this.replacedBy = replacedBy; }
+
+    boolean hasCategory(CategoryDictionary dictionary, int categoryId) {
+        for (int id : getCategoryIds(dictionary)) {
+            if (id == categoryId) {
+                return true;
+            }
+        }
+        return false;
+    }
 
     @Override
     public String toString() {
@@ -36,8 +102,83 @@ public class Book {
                 ", author='" + author + '\'' +
                 ", isbn='" + isbn + '\'' +
                 ", publishDate=" + publishDate +
-                ", categories=" + categories +
-                ", isAvailable=" + isAvailable +
+                ", categories=" + getCategories() +
+                ", isAvailable=" + isAvailable() +
                 '}';
     }
+
+    /**
+     * 카테고리 이름 배열 또는 사전 id 배열. 한 번 만든 뒤에는 바꾸지 않고 통째로 교체합니다.
+     */
+    private static final class Categories {
+        private final CategoryDictionary dictionary;
+        private final int[] ids;
+        private final String[] names;
+
+        private Categories(CategoryDictionary dictionary, int[] ids, String[] names) {
+            this.dictionary = dictionary;
+            this.ids = ids;
+            this.names = names;
+        }
+
+        private int size() {
+            return names != null ? names.length : ids.length;
+        }
+
+        private String name(int index) {
+            return names != null ? names[index] : dictionary.nameOf(ids[index]);
+        }
+
+        private String[] names() {
+            if (names != null) {
+                return names;
+            }
+            String[] decoded = new String[ids.length];
+            for (int i = 0; i < decoded.length; i++) {
+                decoded[i] = dictionary.nameOf(ids[i]);
+            }
+            return decoded;
+        }
+    }
+
+    /**
+     * 이 책의 카테고리를 이름 리스트처럼 보여주는 읽기 전용 뷰입니다.
+     * 사전으로 인코딩된 책이면 contains는 이름을 id로 한 번 바꾼 뒤 정수 비교로 처리합니다.
+     */
+    private class CategoryList extends AbstractList<String> {
+        @Override
+        public String get(int index) {
+            Categories current = categories;
+            Objects.checkIndex(index, current.size());
+            return current.name(index);
+        }
+
+        @Override
+        public int size() {
+            return categories.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            Categories current = categories;
+            if (current.names != null) {
+                for (String name : current.names) {
+                    if (name.equals(o)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            int id = current.dictionary.idOf(o);
+            if (id < 0) {
+                return false;
+            }
+            for (int candidate : current.ids) {
+                if (candidate == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 }
@@ -0,0 +1,80 @@
+package org.speculatingwook.library;
+
+import org.speculatingwook.library.book.BookValidator;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 책 필드에 대한 구조화된 검색 조건입니다.
+ * <p>
+ * Predicate와 달리 어떤 필드를 어떻게 비교하는지 드러나 있으므로,
+ * LibraryService가 조건마다 쓸 수 있는 인덱스를 골라 실행 계획을 세울 수 있습니다.
+ * 모든 조건은 AND로 결합됩니다.
+ * </p>
+ * <pre>
+ * BookQuery query = new BookQuery()
+ *         .author("George Orwell")
+ *         .category("Dystopian")
+ *         .available(true);
+ * </pre>
+ */
+public class BookQuery {
+    private String isbn;
+    private String author;
+    private String category;
+    private LocalDate publishedFrom;
+    private LocalDate publishedTo;
+    private Boolean available;
+    private final List<BookValidator> validators = new ArrayList<>();
+
+    /** ISBN이 일치하는 책 */
+    public BookQuery isbn(String isbn) {
+        this.isbn = isbn;
+        return this;
+    }
+
+    /** 저자가 일치하는 책 */
+    public BookQuery author(String author) {
+        this.author = author;
+        return this;
+    }
+
+    /** 카테고리에 category가 포함된 책 */
+    public BookQuery category(String category) {
+        this.category = category;
+        return this;
+    }
+
+    /** 출판일이 from 이상 to 이하인 책. 한쪽 경계가 null이면 그쪽은 제한하지 않습니다. (예: publishedBetween(from, null)) */
+    public BookQuery publishedBetween(LocalDate from, LocalDate to) {
+        this.publishedFrom = from;
+        this.publishedTo = to;
+        return this;
+    }
+
+    /** 대출 가능 여부가 일치하는 책 */
+    public BookQuery available(boolean available) {
+        this.available = available;
+        return this;
+    }
+
+    /** 인덱스로 처리할 수 없는 추가 조건. 인덱스로 후보를 좁힌 뒤 마지막에 검사합니다. */
+    public BookQuery where(BookValidator validator) {
+        validators.add(validator);
+        return this;
+    }
+
+    String getIsbn() { return isbn; }
+    String getAuthor() { return author; }
+    String getCategory() { return category; }
+    LocalDate getPublishedFrom() { return publishedFrom; }
+    LocalDate getPublishedTo() { return publishedTo; }
+    Boolean getAvailable() { return available; }
+    List<BookValidator> getValidators() { return validators; }
+
+    boolean hasPublishRange() {
+        return publishedFrom != null || publishedTo != null;
+    }
+}
@@ -0,0 +1,113 @@
+package org.speculatingwook.library;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * LibraryService의 책 저장소입니다. 책마다 고정된 칸(slot)을 하나씩 두고,
+ * {@link #publish()}를 호출할 때마다 읽기 전용 {@link CatalogVersion}을 발행합니다.
+ * <p>
+ * 칸 번호가 곧 ordinal이자 책 목록 순서입니다. 책을 교체하면 같은 칸에 새 책을 넣으므로 O(1)이고 순서도 바뀌지 않습니다.
+ * 칸은 {@link #PAGE_SIZE}개씩 페이지로 나뉘어 있습니다.
+ * </p>
+ * <p>
+ * copyOnWrite 모드에서는 이미 발행된 버전이 보고 있는 칸을 절대 고치지 않습니다.
+ * 끝에 추가하는 것은 발행된 길이 밖에 쓰는 것이므로 복사 없이 처리하고,
+ * 기존 칸을 바꿔야 할 때는 그 칸이 속한 페이지(와 페이지 목록)만 복사합니다. 한 번 복사한 페이지는 다음 publish 전까지
+ * 다시 복사하지 않으므로 여러 쓰기를 묶어서 발행하면 복사도 한 번만 일어납니다.
+ * 쓰기 메서드는 호출하는 쪽(LibraryService)에서 직렬화해야 합니다.
+ * </p>
+ */
+class BookStore {
+    static final int PAGE_SHIFT = 10;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final boolean copyOnWrite;
+
+    private Book[][] pages = new Book[16][];
+    private int size;
+    // 페이지 목록이 발행된 버전과 공유 중인지 여부
+    private boolean pagesShared;
+    // 페이지별로 마지막으로 복사(또는 생성)된 publish 세대. 현재 세대와 같으면 발행된 버전과 공유하지 않는 페이지입니다.
+    private long[] pageGenerations = new long[16];
+    private long generation;
+
+    private volatile CatalogVersion current;
+
+    BookStore(boolean copyOnWrite) {
+        this.copyOnWrite = copyOnWrite;
+        this.current = new CatalogVersion(0, pages, 0);
+    }
+
+    /**
+     * @return 가장 최근에 발행된 버전
+     */
+    CatalogVersion current() {
+        return current;
+    }
+
+    CatalogVersion publish() {
+        CatalogVersion published = new CatalogVersion(current.number() + 1, pages, size);
+        pagesShared = true;
+        generation++;
+        current = published;
+        return published;
+    }
+
+    /**
+     * 책을 목록 끝의 새 칸에 추가합니다.
+     * @return 새 책의 ordinal
+     */
+    int append(Book book) {
+        int page = size >>> PAGE_SHIFT;
+        if ((size & PAGE_MASK) == 0) {
+            // 발행된 버전은 자신의 길이까지만 읽으므로 새 페이지를 끝에 다는 것은 복사 없이 해도 됩니다.
+            if (page == pages.length) {
+                pages = Arrays.copyOf(pages, page * 2);
+                pageGenerations = Arrays.copyOf(pageGenerations, page * 2);
+                pagesShared = false;
+            }
+            pages[page] = new Book[PAGE_SIZE];
+            pageGenerations[page] = generation;
+        }
+        pages[page][size & PAGE_MASK] = book;
+        return size++;
+    }
+
+    /**
+     * ordinal 칸의 책을 교체합니다. 책 목록에서의 위치는 그대로입니다.
+     */
+    void replace(int ordinal, Book updated) {
+        int page = ordinal >>> PAGE_SHIFT;
+        if (copyOnWrite && pageGenerations[page] != generation) {
+            if (pagesShared) {
+                pages = pages.clone();
+                pagesShared = false;
+            }
+            pages[page] = pages[page].clone();
+            pageGenerations[page] = generation;
+        }
+        pages[page][ordinal & PAGE_MASK] = updated;
+    }
+
+    /**
+     * 비어 있는 저장소에 책들을 순서대로 한 번에 채웁니다.
+     */
+    void load(List<Book> books) {
+        for (Book book : books) {
+            append(book);
+        }
+    }
+
+    /**
+     * 아직 발행하지 않은 변경까지 포함한 ordinal 칸의 책 (쓰기 쪽에서만 사용)
+     */
+    Book bookAt(int ordinal) {
+        return pages[ordinal >>> PAGE_SHIFT][ordinal & PAGE_MASK];
+    }
+
+    int ordinalCount() {
+        return size;
+    }
+}
@@ -0,0 +1,60 @@
+package org.speculatingwook.library;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 특정 시점에 발행된 카탈로그의 읽기 전용 버전입니다.
+ * <p>
+ * 칸 페이지 배열과 길이를 함께 들고 있으며, 이 버전을 읽는 동안 쓰기가 일어나도 보이는 내용은 바뀌지 않습니다.
+ * </p>
+ */
+class CatalogVersion {
+    private final long number;
+    private final Book[][] pages;
+    private final int size;
+    private final List<Book> books;
+
+    CatalogVersion(long number, Book[][] pages, int size) {
+        this.number = number;
+        this.pages = pages;
+        this.size = size;
+        this.books = new BookList();
+    }
+
+    long number() {
+        return number;
+    }
+
+    /**
+     * @return 책 목록 순서의 읽기 전용 리스트
+     */
+    List<Book> books() {
+        return books;
+    }
+
+    Book bookAt(int ordinal) {
+        return pages[ordinal >>> BookStore.PAGE_SHIFT][ordinal & (BookStore.PAGE_SIZE - 1)];
+    }
+
+    int ordinalCount() {
+        return size;
+    }
+
+    // 칸 순서 그대로 보여주는 읽기 전용 리스트
+    private class BookList extends AbstractList<Book> implements RandomAccess {
+        @Override
+        public Book get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return bookAt(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
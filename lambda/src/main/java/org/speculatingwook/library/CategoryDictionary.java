@@ -0,0 +1,64 @@
+package org.speculatingwook.library;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 카테고리 이름과 작은 정수 id를 서로 변환하는 사전입니다.
+ * <p>
+ * 책은 카테고리 이름 대신 id 배열만 들고 있으므로, 같은 카테고리 문자열이 책마다 중복 저장되지 않고
+ * 카테고리 비교와 집계도 문자열 해싱 없이 정수 비교로 처리됩니다.
+ * id는 0부터 차례로 부여되며 한 번 부여된 id는 바뀌지 않습니다.
+ * 사전은 LibraryService마다 하나씩 두므로 그 서비스에 들어온 적 있는 카테고리만 담기고, 서비스와 함께 정리됩니다.
+ * </p>
+ */
+final class CategoryDictionary {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private int size;
+
+    /**
+     * @return 카테고리의 id, 한 번도 등록된 적 없는 카테고리면 -1
+     */
+    int idOf(Object category) {
+        Integer id = category == null ? null : ids.get(category);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * 카테고리의 id를 반환하며, 처음 보는 카테고리면 새 id를 부여합니다.
+     */
+    int encode(String category) {
+        Integer id = ids.get(category);
+        return id != null ? id : register(category);
+    }
+
+    int[] encode(String[] categories) {
+        int[] encoded = new int[categories.length];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = encode(categories[i]);
+        }
+        return encoded;
+    }
+
+    private synchronized int register(String category) {
+        Integer id = ids.get(category);
+        if (id != null) {
+            return id;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        // 이름을 먼저 기록한 뒤 id를 공개해야 다른 스레드가 id로 이름을 찾을 수 있습니다.
+        String[] current = names;
+        current[size] = category;
+        names = current;
+        ids.put(category, size);
+        return size++;
+    }
+
+    String nameOf(int id) {
+        return names[id];
+    }
+}
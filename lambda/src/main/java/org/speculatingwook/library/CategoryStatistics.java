@@ -0,0 +1,228 @@
+package org.speculatingwook.library;
+
+import java.util.*;
+
+/**
+ * 카테고리별 책 수와 책 목록을 책이 추가/교체될 때마다 갱신해 두는 집계 구조입니다.
+ * <p>
+ * 카테고리들은 (책 수 내림차순, 이름 오름차순)으로 정렬된 상태를 유지하므로
+ * 상위 n개 카테고리는 전체를 다시 정렬하지 않고 앞에서부터 n개만 읽으면 됩니다.
+ * 카운트 하나를 바꾸는 비용은 O(log C)입니다. (C: 카테고리 수)
+ * 카테고리는 CategoryDictionary의 id로 다루므로 갱신 시 문자열을 해싱하지 않습니다.
+ * 책 목록은 카테고리마다 ordinal 목록({@link OrdinalBucket})으로 두고 조회할 때 발행된 버전에서 책을 꺼내므로,
+ * 카테고리가 그대로인 교체는 목록을 건드리지 않고 책은 책 목록 순서를 유지합니다.
+ * </p>
+ */
+class CategoryStatistics {
+    private static final Comparator<CategoryCount> RANKING =
+            Comparator.comparingLong((CategoryCount c) -> c.count).reversed()
+                    .thenComparing(c -> c.category);
+
+    private final BookStore store;
+    private final CategoryDictionary dictionary;
+    // 카테고리 id -> 집계. 책도, 정리되지 않은 ordinal도 없는 카테고리는 null입니다.
+    private CategoryCount[] counts = new CategoryCount[16];
+    private int distinctCategories;
+    // 책이 한 권 이상인 카테고리만 들어 있습니다.
+    private final NavigableSet<CategoryCount> ranking = new TreeSet<>(RANKING);
+
+    CategoryStatistics(BookStore store, CategoryDictionary dictionary) {
+        this.store = store;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * ordinal 칸에 들어간 책을 반영합니다. 발행 전에 호출해도 되며, 발행되기 전까지는 조회 결과에 나오지 않습니다.
+     */
+    synchronized void add(int ordinal, Book book) {
+        for (int id : book.getCategoryIds(dictionary)) {
+            enter(id, ordinal);
+        }
+    }
+
+    /**
+     * ordinal 칸의 책이 old에서 updated로 바뀐 것을 반영합니다. 두 책 모두에 있는 카테고리는 건드리지 않습니다.
+     * 발행 전에 호출해야 합니다. 발행된 버전이 old를 보는 동안에도 old의 카테고리 목록에 ordinal이 남아 있어야 하기 때문입니다.
+     */
+    synchronized void replace(int ordinal, Book old, Book updated) {
+        int[] oldIds = old.getCategoryIds(dictionary);
+        int[] updatedIds = updated.getCategoryIds(dictionary);
+        CatalogVersion published = store.current();
+        for (int i = 0; i < oldIds.length; i++) {
+            int id = oldIds[i];
+            // 같은 카테고리가 여러 번 들어 있으면 늘거나 준 만큼만 반영합니다.
+            if (firstIndexOf(oldIds, id) == i) {
+                int delta = occurrences(updatedIds, id) - occurrences(oldIds, id);
+                for (; delta < 0; delta++) {
+                    leave(id, published);
+                }
+            }
+        }
+        for (int i = 0; i < updatedIds.length; i++) {
+            int id = updatedIds[i];
+            if (firstIndexOf(updatedIds, id) == i) {
+                int delta = occurrences(updatedIds, id) - occurrences(oldIds, id);
+                for (; delta > 0; delta--) {
+                    enter(id, ordinal);
+                }
+            }
+        }
+    }
+
+    private static int firstIndexOf(int[] ids, int id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int occurrences(int[] ids, int id) {
+        int occurrences = 0;
+        for (int candidate : ids) {
+            if (candidate == id) {
+                occurrences++;
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * firstOrdinal부터 차례로 놓인 책들을 한 번에 반영합니다. 먼저 카테고리별 책 수를 세어 ordinal 목록을 그 크기로 만들어 두고,
+     * 카운트를 모두 더한 뒤 순위는 마지막에 한 번만 다시 정렬합니다.
+     */
+    synchronized void addAll(int firstOrdinal, List<Book> books) {
+        int[] added = new int[counts.length];
+        for (Book book : books) {
+            for (int id : book.getCategoryIds(dictionary)) {
+                if (id >= added.length) {
+                    added = Arrays.copyOf(added, Math.max(id + 1, added.length * 2));
+                }
+                added[id]++;
+            }
+        }
+        if (added.length > counts.length) {
+            counts = Arrays.copyOf(counts, added.length);
+        }
+        for (int id = 0; id < added.length; id++) {
+            if (added[id] == 0) {
+                continue;
+            }
+            CategoryCount entry = counts[id];
+            if (entry == null) {
+                counts[id] = new CategoryCount(dictionary.nameOf(id), new OrdinalBucket(added[id]));
+            } else {
+                ranking.remove(entry);
+            }
+        }
+        for (int i = 0; i < books.size(); i++) {
+            for (int id : books.get(i).getCategoryIds(dictionary)) {
+                CategoryCount entry = counts[id];
+                if (entry.count++ == 0) {
+                    distinctCategories++;
+                }
+                entry.ordinals.add(firstOrdinal + i);
+            }
+        }
+        for (int id = 0; id < added.length; id++) {
+            if (added[id] > 0) {
+                ranking.add(counts[id]);
+            }
+        }
+    }
+
+    private void enter(int id, int ordinal) {
+        CategoryCount entry = entry(id);
+        if (entry == null) {
+            if (id >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(id + 1, counts.length * 2));
+            }
+            entry = new CategoryCount(dictionary.nameOf(id), new OrdinalBucket());
+            counts[id] = entry;
+        } else if (entry.count > 0) {
+            // 정렬 키가 바뀌므로 TreeSet에서 빼고 다시 넣습니다.
+            ranking.remove(entry);
+        }
+        if (entry.count++ == 0) {
+            distinctCategories++;
+        }
+        entry.ordinals.add(ordinal);
+        ranking.add(entry);
+    }
+
+    private void leave(int id, CatalogVersion published) {
+        CategoryCount entry = counts[id];
+        ranking.remove(entry);
+        // 읽기는 이 락 안에서 발행된 버전을 읽으므로, 발행된 버전과 발행 전 변경 모두에서 이 카테고리가 아닌 ordinal은 바로 지워도 됩니다.
+        boolean dropped = entry.ordinals.leave(candidate -> (candidate < published.ordinalCount()
+                && published.bookAt(candidate).hasCategory(dictionary, id))
+                || store.bookAt(candidate).hasCategory(dictionary, id));
+        if (--entry.count > 0) {
+            ranking.add(entry);
+        } else {
+            distinctCategories--;
+            if (dropped && entry.ordinals.isEmpty()) {
+                counts[id] = null;
+            }
+        }
+    }
+
+    private CategoryCount entry(int id) {
+        return id >= 0 && id < counts.length ? counts[id] : null;
+    }
+
+    private CategoryCount entry(String category) {
+        return entry(dictionary.idOf(category));
+    }
+
+    synchronized long count(String category) {
+        CategoryCount entry = entry(category);
+        return entry == null ? 0 : entry.count;
+    }
+
+    /**
+     * @return 현재 발행된 버전에서 카테고리에 속한 책들 (책 목록 순서)
+     */
+    synchronized List<Book> booksIn(String category) {
+        int id = dictionary.idOf(category);
+        CategoryCount entry = entry(id);
+        List<Book> books = new ArrayList<>();
+        if (entry != null) {
+            entry.ordinals.collect(store.current(), book -> book.hasCategory(dictionary, id), books);
+        }
+        return books;
+    }
+
+    synchronized Map<String, Long> toMap() {
+        Map<String, Long> result = new HashMap<>(distinctCategories * 4 / 3 + 1);
+        for (CategoryCount entry : counts) {
+            if (entry != null && entry.count > 0) {
+                result.put(entry.category, entry.count);
+            }
+        }
+        return result;
+    }
+
+    synchronized List<String> top(int n) {
+        List<String> result = new ArrayList<>(Math.min(Math.max(n, 0), ranking.size()));
+        for (CategoryCount entry : ranking) {
+            if (result.size() >= n) {
+                break;
+            }
+            result.add(entry.category);
+        }
+        return result;
+    }
+
+    private static class CategoryCount {
+        private final String category;
+        private final OrdinalBucket ordinals;
+        private long count;
+
+        private CategoryCount(String category, OrdinalBucket ordinals) {
+            this.category = category;
+            this.ordinals = ordinals;
+        }
+    }
+}
@@ -0,0 +1,575 @@
+package org.speculatingwook.library;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * LibraryService의 변경(대출, 반납, 추가, 교체)을 파일 끝에 차례로 기록하는 write-ahead 저널입니다.
+ * <p>
+ * 기록 요청은 큐에 쌓이고, 전용 스레드가 그때까지 쌓인 기록을 한 번에 쓰고 fsync(force)합니다. (group commit)
+ * {@link #open(Path)}로 열면 모든 변경이 자신의 기록이 fsync될 때까지 기다리므로, 반환된 변경은 장애가 나도 잃지 않습니다.
+ * 스레드 하나의 처리량이 fsync 지연에 묶이는 것이 문제라면 {@link #open(Path, int)}에 commit window를 주어 열 수 있습니다.
+ * 이때는 아직 fsync되지 않은 기록이 창 크기보다 적으면 기다리지 않고 바로 반환하므로, 장애가 나면 이미 반환된
+ * 가장 최근의 변경을 창 크기만큼까지 잃을 수 있습니다. (손실 한도가 있는 group commit)
+ * </p>
+ * <p>
+ * 쓰기나 fsync가 한 번 실패하면 그 뒤의 파일 내용을 믿을 수 없으므로 저널은 멈춥니다. 실패한 묶음과 그 뒤의 모든 기록 요청은
+ * 같은 예외로 실패하며, 다시 기록하려면 저널을 다시 열어 {@link #replay(LibraryService)}로 복구해야 합니다.
+ * </p>
+ * <p>
+ * 파일은 [int MAGIC][long 첫 기록의 번호] 헤더 뒤에 기록들이 이어지며, 각 기록은 [int 길이][int CRC32][byte 종류][내용] 형태입니다.
+ * 대출/반납 기록은 ordinal 칸 책의 대출 상태를 그대로 담으므로 여러 번 적용해도 결과가 같습니다.
+ * 재시작 시 {@link #replay(LibraryService)}는 파일을 조금씩 읽으며 길이나 CRC가 맞지 않는 첫 기록(쓰다가 중단된 꼬리)에서 멈추고
+ * 그 뒤를 잘라낸 다음 이어서 기록합니다.
+ * </p>
+ * <p>
+ * 저널은 스냅샷 전까지의 기록을 계속 들고 있을 필요가 없습니다. {@link #checkpoint(LibraryService, Path)}는 스냅샷을 쓰고
+ * 스냅샷에 담긴 기록을 저널에서 지웁니다. 스냅샷에는 담긴 기록 번호가 함께 저장되므로, 지우기 전에 멈췄더라도
+ * 그 스냅샷에서 시작한 replay는 이미 담긴 기록을 건너뜁니다.
+ * </p>
+ * <pre>
+ * LibraryService libraryService = LibrarySnapshot.load(snapshot, true);
+ * LibraryJournal journal = LibraryJournal.open(path);
+ * journal.replay(libraryService);
+ * libraryService.attachJournal(journal);
+ * ...
+ * journal.checkpoint(libraryService, snapshot);
+ * </pre>
+ */
+public class LibraryJournal implements AutoCloseable {
+    private static final int MAGIC = 0x4C49424A; // "LIBJ"
+    private static final int FILE_HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    private static final byte LEND = 1;
+    private static final byte RETURN = 2;
+    private static final byte ADD = 3;
+    private static final byte UPDATE = 4;
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    private static final int MAX_BATCH = 4096;
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+    /**
+     * 손실 한도가 있는 group commit을 고를 때 쓸 만한 commit window. 스레드 하나가 fsync를 기다리지 않고 이어서 기록할 수 있을 만큼 크고,
+     * 장애 시 잃는 변경이 fsync 몇 번 사이에 들어온 정도로 남을 만큼 작습니다. {@code open(path, GROUP_COMMIT_WINDOW)}처럼 직접 지정해야 합니다.
+     */
+    public static final int GROUP_COMMIT_WINDOW = 1024;
+    private static final CompletableFuture<Void> ACCEPTED = CompletableFuture.completedFuture(null);
+
+    private final Path path;
+    private final int maxUnflushedRecords;
+    // 쓰기 스레드가 압축하면서 새 파일로 바꿉니다.
+    private volatile FileChannel channel;
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    // 아래 필드들은 queue의 락으로 보호합니다.
+    private boolean closed;
+    private IOException failure;
+    // 다음 기록이 받을 번호와, 큐에 넣었지만 아직 fsync되지 않은 기록 수
+    private long nextSequence;
+    private int unflushed;
+    private boolean replayed;
+
+    private LibraryJournal(Path path, FileChannel channel, int maxUnflushedRecords) {
+        this.path = path;
+        this.channel = channel;
+        this.maxUnflushedRecords = maxUnflushedRecords;
+        this.writer = new Thread(this::writeLoop, "library-journal");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * 모든 변경이 자신의 기록이 fsync될 때까지 기다리는 저널 파일을 엽니다. ({@code open(path, 0)})
+     * @see #open(Path, int)
+     */
+    public static LibraryJournal open(Path path) throws IOException {
+        return open(path, 0);
+    }
+
+    /**
+     * 저널 파일을 엽니다. 파일이 없으면 새로 만듭니다.
+     * 기존 기록을 복구하려면 기록을 시작하기 전에 {@link #replay(LibraryService)}를 호출해야 합니다.
+     * @param maxUnflushedRecords fsync를 기다리지 않고 반환할 수 있는 기록 수. 장애 시 이만큼의 반환된 변경을 잃을 수 있습니다.
+     *                            0이면 모든 변경이 자신의 fsync를 기다립니다.
+     */
+    public static LibraryJournal open(Path path, int maxUnflushedRecords) throws IOException {
+        if (maxUnflushedRecords < 0) {
+            throw new IllegalArgumentException("maxUnflushedRecords must not be negative: " + maxUnflushedRecords);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long baseSequence;
+            if (channel.size() == 0) {
+                baseSequence = 0;
+                writeFileHeader(channel, baseSequence);
+                channel.force(true);
+            } else {
+                baseSequence = readFileHeader(channel, path);
+            }
+            LibraryJournal journal = new LibraryJournal(path, channel, maxUnflushedRecords);
+            journal.nextSequence = baseSequence;
+            channel.position(channel.size());
+            journal.writer.start();
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void writeFileHeader(FileChannel channel, long baseSequence) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putLong(baseSequence);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private static long readFileHeader(FileChannel channel, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Truncated journal header: " + path);
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a library journal: " + path);
+        }
+        return header.getLong();
+    }
+
+    /**
+     * 저널의 기록을 처음부터 순서대로 libraryService에 다시 적용합니다.
+     * libraryService가 스냅샷에서 적재되었으면 스냅샷에 이미 담긴 기록은 건너뜁니다.
+     * libraryService에는 아직 저널이 연결되어 있지 않아야 합니다. (다시 적용한 변경이 또 기록되지 않도록)
+     * @return 적용한 기록 수
+     * @throws IOException 파일을 읽지 못했거나, 저널이 스냅샷 뒤의 기록부터 시작해 중간 기록이 빠진 경우
+     */
+    public int replay(LibraryService libraryService) throws IOException {
+        synchronized (queue) {
+            if (replayed) {
+                throw new IllegalStateException("Journal already replayed");
+            }
+            replayed = true;
+        }
+        long covered = libraryService.journalSequence();
+        long sequence = readFileHeader(channel, path);
+        if (sequence > covered) {
+            throw new IOException("Journal starts at record " + sequence + " but the library only covers " + covered + " records");
+        }
+        long size = channel.size();
+        long position = FILE_HEADER_BYTES;
+        int applied = 0;
+        channel.position(position);
+        // 스트림을 닫으면 채널도 닫히므로 읽기만 하고 닫지 않습니다.
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), READ_BUFFER_BYTES));
+        while (size - position >= HEADER_BYTES) {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || length > size - position - HEADER_BYTES) {
+                break;
+            }
+            byte[] record = new byte[length];
+            in.readFully(record);
+            if (checksum != checksum(record, 0, length)) {
+                break;
+            }
+            if (sequence >= covered) {
+                apply(ByteBuffer.wrap(record), libraryService);
+                applied++;
+            }
+            sequence++;
+            position += HEADER_BYTES + length;
+        }
+        // 중간에 끊긴 꼬리는 버리고 마지막 온전한 기록 뒤부터 이어 씁니다.
+        channel.truncate(position);
+        channel.position(position);
+        synchronized (queue) {
+            nextSequence = sequence;
+        }
+        libraryService.journalReplayed(sequence);
+        return applied;
+    }
+
+    private static void apply(ByteBuffer record, LibraryService libraryService) {
+        byte type = record.get();
+        switch (type) {
+            case LEND:
+                libraryService.restoreAvailability(record.getInt(), false);
+                break;
+            case RETURN:
+                libraryService.restoreAvailability(record.getInt(), true);
+                break;
+            case ADD:
+                libraryService.addBook(readBook(record));
+                break;
+            case UPDATE:
+                String isbn = readString(record);
+                Book updated = readBook(record);
+                libraryService.updateBookState(isbn, book -> updated);
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal record type: " + type);
+        }
+    }
+
+    /**
+     * 카탈로그 스냅샷을 쓰고, 스냅샷에 담긴 기록을 저널에서 지웁니다.
+     * 스냅샷이 디스크에 반영된 뒤에 남은 기록만 새 파일로 옮겨 저널을 바꾸므로, 어느 단계에서 멈춰도
+     * 스냅샷과 저널로 같은 상태를 복구할 수 있습니다. 그동안 들어온 변경은 새 파일에 이어서 기록됩니다.
+     * @param libraryService 이 저널이 연결된 서비스
+     * @param snapshot 스냅샷 파일 경로
+     */
+    public void checkpoint(LibraryService libraryService, Path snapshot) throws IOException {
+        if (libraryService.journal() != this) {
+            throw new IllegalArgumentException("Journal is not attached to the library");
+        }
+        LibraryService.CatalogView catalog = libraryService.catalogView();
+        LibrarySnapshot.write(catalog, snapshot);
+        PendingRecord compaction = PendingRecord.compaction(catalog.journalSequence);
+        enqueue(compaction);
+        try {
+            compaction.durable.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return 지금까지 기록을 요청한 변경 수. 기록 번호는 0부터 차례로 부여되므로 다음 기록의 번호이기도 합니다.
+     */
+    long sequence() {
+        synchronized (queue) {
+            return nextSequence;
+        }
+    }
+
+    CompletableFuture<Void> lend(int ordinal) {
+        return append(LEND, out -> out.writeInt(ordinal));
+    }
+
+    CompletableFuture<Void> returned(int ordinal) {
+        return append(RETURN, out -> out.writeInt(ordinal));
+    }
+
+    CompletableFuture<Void> add(Book book) {
+        return append(ADD, out -> writeBook(out, book));
+    }
+
+    CompletableFuture<Void> update(String isbn, Book book) {
+        return append(UPDATE, out -> {
+            writeString(out, isbn);
+            writeBook(out, book);
+        });
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * @return 기록이 디스크에 반영되면 완료되는 future. commit window 안이면 이미 완료된 future
+     */
+    private CompletableFuture<Void> append(byte type, RecordWriter body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(type);
+            body.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] record = bytes.toByteArray();
+        int length = record.length - HEADER_BYTES;
+        ByteBuffer.wrap(record)
+                .putInt(length)
+                .putInt(checksum(record, HEADER_BYTES, length));
+        PendingRecord pending = new PendingRecord(record);
+        return enqueue(pending);
+    }
+
+    private CompletableFuture<Void> enqueue(PendingRecord pending) {
+        // close()와 같은 락으로 순서를 맞춰 종료 표시 뒤에 기록이 들어가지 않게 합니다.
+        synchronized (queue) {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            if (failure != null) {
+                return CompletableFuture.failedFuture(failure);
+            }
+            queue.add(pending);
+            if (pending.record == null) {
+                return pending.durable;
+            }
+            nextSequence++;
+            unflushed++;
+            return unflushed > maxUnflushedRecords ? pending.durable : ACCEPTED;
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>();
+        List<PendingRecord> records = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH);
+            // 압축과 종료 표시 앞의 기록은 먼저 디스크에 반영한 뒤 처리합니다.
+            for (PendingRecord pending : batch) {
+                if (pending.record != null) {
+                    records.add(pending);
+                    continue;
+                }
+                flush(records);
+                records.clear();
+                if (pending == PendingRecord.SHUTDOWN) {
+                    running = false;
+                } else {
+                    compact(pending);
+                }
+            }
+            flush(records);
+            records.clear();
+            batch.clear();
+        }
+    }
+
+    private void flush(List<PendingRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        IOException failed = failure();
+        if (failed == null) {
+            try {
+                int bytes = batch.stream().mapToInt(pending -> pending.record.length).sum();
+                ByteBuffer buffer = ByteBuffer.allocate(bytes);
+                batch.forEach(pending -> buffer.put(pending.record));
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                failed = fail(e);
+            } catch (RuntimeException | Error e) {
+                // 쓰기 스레드가 죽으면 기다리는 쪽이 영원히 깨어나지 못하므로 실패로 알리고 멈춥니다.
+                failed = fail(new IOException("Journal writer failed", e));
+            }
+        }
+        synchronized (queue) {
+            unflushed -= batch.size();
+        }
+        for (PendingRecord pending : batch) {
+            if (failed == null) {
+                pending.durable.complete(null);
+            } else {
+                pending.durable.completeExceptionally(failed);
+            }
+        }
+    }
+
+    private IOException failure() {
+        synchronized (queue) {
+            return failure;
+        }
+    }
+
+    // 첫 실패를 기록하고 돌려줍니다. 이미 실패했으면 처음의 예외를 돌려줍니다.
+    private IOException fail(IOException e) {
+        synchronized (queue) {
+            if (failure == null) {
+                failure = e;
+            }
+            return failure;
+        }
+    }
+
+    /**
+     * 쓰기 스레드에서 pending.compactTo번 기록부터 남기고 앞의 기록을 지운 새 파일로 저널을 바꿉니다.
+     * 새 파일을 다 쓰고 fsync한 뒤 이름을 바꾸므로, 그 전에 실패하면 기존 저널을 그대로 씁니다.
+     */
+    private void compact(PendingRecord pending) {
+        IOException failed = failure();
+        if (failed != null) {
+            pending.durable.completeExceptionally(failed);
+            return;
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".compact");
+        boolean replaced = false;
+        try {
+            FileChannel current = channel;
+            long base = readFileHeader(current, path);
+            long offset = offsetOf(current, base, pending.compactTo);
+            if (offset < 0) {
+                pending.durable.complete(null);
+                return;
+            }
+            try (FileChannel target = FileChannel.open(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeFileHeader(target, pending.compactTo);
+                target.position(FILE_HEADER_BYTES);
+                long end = current.size();
+                while (offset < end) {
+                    offset += current.transferTo(offset, end - offset, target);
+                }
+                target.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            replaced = true;
+            FileChannel compacted = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            compacted.position(compacted.size());
+            channel = compacted;
+            current.close();
+            LibrarySnapshot.syncDirectory(path.toAbsolutePath().getParent());
+            pending.durable.complete(null);
+        } catch (IOException | RuntimeException e) {
+            IOException cause = e instanceof IOException ? (IOException) e : new IOException("Journal compaction failed", e);
+            if (replaced) {
+                // 파일은 바뀌었는데 이어서 쓸 채널을 확정하지 못했으므로 더 기록하지 않습니다.
+                cause = fail(cause);
+            }
+            pending.durable.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * @return sequence번 기록이 시작하는 파일 위치. 그 기록이 이미 파일의 첫 기록이면 -1
+     */
+    private static long offsetOf(FileChannel channel, long base, long sequence) throws IOException {
+        if (sequence <= base) {
+            return -1;
+        }
+        long position = FILE_HEADER_BYTES;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        for (long skipped = base; skipped < sequence; skipped++) {
+            header.clear();
+            while (header.hasRemaining()) {
+                if (channel.read(header, position + header.position()) < 0) {
+                    throw new EOFException("Journal ends before record " + sequence);
+                }
+            }
+            position += HEADER_BYTES + header.getInt(0);
+        }
+        return position;
+    }
+
+    /**
+     * 아직 쓰지 않은 기록을 모두 디스크에 반영한 뒤 파일을 닫습니다.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(PendingRecord.SHUTDOWN);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeBook(DataOutputStream out, Book book) throws IOException {
+        writeString(out, book.getTitle());
+        writeString(out, book.getAuthor());
+        writeString(out, book.getIsbn());
+        out.writeLong(book.getPublishDate() == null ? Long.MIN_VALUE : book.getPublishDate().toEpochDay());
+        List<String> categories = book.getCategories();
+        out.writeInt(categories.size());
+        for (String category : categories) {
+            writeString(out, category);
+        }
+        out.writeBoolean(book.isAvailable());
+    }
+
+    private static Book readBook(ByteBuffer in) {
+        String title = readString(in);
+        String author = readString(in);
+        String isbn = readString(in);
+        long epochDay = in.getLong();
+        List<String> categories = new ArrayList<>();
+        for (int i = in.getInt(); i > 0; i--) {
+            categories.add(readString(in));
+        }
+        Book book = new Book(title, author, isbn, epochDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay), categories);
+        book.setAvailable(in.get() != 0);
+        return book;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class PendingRecord {
+        private static final PendingRecord SHUTDOWN = new PendingRecord(null);
+
+        // 기록 내용. 압축 요청과 종료 표시는 null입니다.
+        private final byte[] record;
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+        // 압축 요청이면 남길 첫 기록의 번호
+        private long compactTo;
+
+        private PendingRecord(byte[] record) {
+            this.record = record;
+        }
+
+        private static PendingRecord compaction(long compactTo) {
+            PendingRecord pending = new PendingRecord(null);
+            pending.compactTo = compactTo;
+            return pending;
+        }
+    }
+}
@@ -4,8 +4,13 @@ import org.speculatingwook.library.book.BookProcessor;
 import org.speculatingwook.library.book.BookTransformer;
 import org.speculatingwook.library.book.BookValidator;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -13,10 +18,275 @@ import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 public class LibraryService {
-    private List<Book> books = new ArrayList<>();
+    // 책 목록과 ordinal(추가될 때 0부터 차례로 부여, 책이 교체되어도 유지) -> 책 배열을 관리합니다.
+    private final BookStore store;
+    // ISBN -> ordinal 목록 기본 인덱스. 같은 ISBN의 사본이 여러 권이면 ordinal 오름차순(추가된 순서)으로 모두 들어 있습니다.
+    // 배열은 고치지 않고 새로 만들어 넣으므로 읽는 쪽은 잠금 없이 순회할 수 있습니다.
+    private final Map<String, int[]> ordinalsByIsbn;
+    private final AvailabilityBitmap availability = new AvailabilityBitmap();
+    // 이 서비스의 카테고리 이름 <-> id 사전
+    private final CategoryDictionary categories = new CategoryDictionary();
+    // 카테고리, 저자, 출판일 인덱스는 ordinal을 들고 있다가 조회할 때 발행된 버전에서 책을 꺼냅니다.
+    private final CategoryStatistics categoryStatistics;
+    private final AuthorIndex authorIndex;
+    private final PublishDateIndex publishDateIndex;
+    private final TitleIndex titleIndex = new TitleIndex();
+    // 변경을 기록할 저널. 없으면 기록하지 않습니다.
+    private volatile LibraryJournal journal;
+    // 저널이 연결되기 전까지 지금 상태에 반영된 저널 기록 수 (스냅샷 적재, replay)
+    private long journalSequence;
+    private static final CompletableFuture<Void> NOT_JOURNALED = CompletableFuture.completedFuture(null);
+    private static final int[] NO_ORDINALS = new int[0];
+
+    public LibraryService() {
+        this(false);
+    }
+
+    /**
+     * @param concurrent true이면 여러 스레드에서 동시에 사용할 수 있는 모드로 생성합니다.
+     *                   읽기는 쓰기가 발행한 읽기 전용 버전(스냅샷) 하나 위에서 수행되므로
+     *                   쓰기가 진행 중이어도 ConcurrentModificationException이나 섞인 결과가 나오지 않습니다.
+     *                   쓰기는 서로 직렬화됩니다. 대출/반납은 잠금 없이 CAS만으로 하지 않고 그 책의 모니터를 잡습니다.
+     *                   상태 전이와 저널 기록이 책마다 같은 순서로 남아야 하고, 교체 중인 책에 들어온 대출/반납을 새 책으로 넘겨야 하기 때문입니다.
+     *                   잡는 것은 그 책의 모니터뿐이므로 다른 책의 대출/반납이나 쓰기는 기다리지 않습니다.
+     */
+    public LibraryService(boolean concurrent) {
+        this.store = new BookStore(concurrent);
+        this.ordinalsByIsbn = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        this.categoryStatistics = new CategoryStatistics(store, categories);
+        this.authorIndex = new AuthorIndex(store);
+        this.publishDateIndex = new PublishDateIndex(store);
+    }
+
+    /**
+     * 이후의 대출, 반납, 추가, 교체를 저널에 기록합니다.
+     * 동시에 들어온 변경들은 fsync 한 번에 함께 기록됩니다. 각 메서드는 자신의 변경이 fsync될 때까지 기다리고,
+     * 기록이 실패하면 UncheckedIOException을 던집니다. (대출은 되돌립니다)
+     * 저널을 commit window와 함께 열었으면 창이 찰 때까지는 기다리지 않고 반환하므로, 장애 시 반환된 변경을 창 크기만큼까지 잃을 수 있습니다.
+     * 기존 기록을 복구하려면 연결하기 전에 {@link LibraryJournal#replay(LibraryService)}를 호출합니다.
+     * @param journal 변경을 기록할 저널
+     */
+    public synchronized void attachJournal(LibraryJournal journal) {
+        this.journal = journal;
+    }
+
+    synchronized LibraryJournal journal() {
+        return journal;
+    }
+
+    /**
+     * @return 지금 상태에 반영된 저널 기록 수. 저널이 연결되어 있으면 그 저널에 기록을 요청한 변경 수입니다.
+     */
+    synchronized long journalSequence() {
+        LibraryJournal journal = this.journal;
+        return journal == null ? journalSequence : journal.sequence();
+    }
+
+    // 스냅샷을 적재했거나 저널을 다시 적용해 sequence번 기록까지 반영되었습니다.
+    synchronized void journalReplayed(long sequence) {
+        journalSequence = sequence;
+    }
+
+    /**
+     * 저널을 다시 적용할 때 ordinal 칸 책의 대출 상태를 기록된 값으로 맞춥니다. 이미 그 상태면 아무것도 하지 않습니다.
+     */
+    void restoreAvailability(int ordinal, boolean available) {
+        Book book = version().bookAt(ordinal);
+        changeAvailability(ordinal, book, book.getIsbn(), available, null);
+    }
+
+    // 저널 기록이 디스크에 반영될 때까지 기다립니다. 쓰기 락 밖에서 기다려야 다른 변경과 fsync를 나눠 쓸 수 있습니다.
+    private static void awaitDurable(CompletableFuture<Void> durable) {
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) e.getCause());
+            }
+            throw e;
+        }
+    }
+
+    // 현재 발행된 버전. 읽기 메서드는 호출마다 한 번만 읽어서 같은 버전을 끝까지 사용합니다.
+    private CatalogVersion version() {
+        return store.current();
+    }
 
     public void addBook(Book book) {
-        books.add(book);
+        awaitDurable(appendBook(book));
+    }
+
+    private synchronized CompletableFuture<Void> appendBook(Book book) {
+        // 책이 보이기 전에 기록해야 이 책의 대출/반납 기록이 추가 기록보다 앞서지 않습니다.
+        LibraryJournal journal = this.journal;
+        CompletableFuture<Void> durable = journal == null ? NOT_JOURNALED : journal.add(book);
+        int ordinal = store.append(book);
+        availability.ensureCapacity(ordinal + 1);
+        publishAvailability(ordinal, book);
+        indexOrdinal(ordinal, book);
+        store.publish();
+        indexIsbn(book.getIsbn(), ordinal);
+        index(book);
+        return durable;
+    }
+
+    /**
+     * 여러 책을 한 번에 추가합니다.
+     * 동시 모드에서는 모든 책을 넣은 뒤 새 버전을 한 번만 발행하므로 대량 적재에 유리하며,
+     * 읽는 쪽에서는 묶음 전체가 한꺼번에 보입니다.
+     * @param newBooks 추가할 책들
+     */
+    public void addBooks(Collection<? extends Book> newBooks) {
+        awaitDurable(appendBooks(newBooks));
+    }
+
+    private synchronized CompletableFuture<Void> appendBooks(Collection<? extends Book> newBooks) {
+        LibraryJournal journal = this.journal;
+        CompletableFuture<Void> durable = journal == null ? NOT_JOURNALED : CompletableFuture.allOf(newBooks.stream()
+                .map(journal::add)
+                .toArray(CompletableFuture<?>[]::new));
+        int firstOrdinal = store.ordinalCount();
+        for (Book book : newBooks) {
+            store.append(book);
+        }
+        availability.ensureCapacity(store.ordinalCount());
+        for (int ordinal = firstOrdinal; ordinal < store.ordinalCount(); ordinal++) {
+            publishAvailability(ordinal, store.bookAt(ordinal));
+            indexOrdinal(ordinal, store.bookAt(ordinal));
+        }
+        store.publish();
+        for (int ordinal = firstOrdinal; ordinal < store.ordinalCount(); ordinal++) {
+            Book book = store.bookAt(ordinal);
+            indexIsbn(book.getIsbn(), ordinal);
+            index(book);
+        }
+        return durable;
+    }
+
+    /**
+     * 비어 있는 서비스에 스냅샷에서 읽은 책들을 한 번에 적재합니다.
+     * @param books 스냅샷의 ordinal 순서(책 목록 순서)의 책들
+     */
+    synchronized void load(List<Book> books) {
+        if (store.ordinalCount() > 0) {
+            throw new IllegalStateException("Snapshot can only be loaded into an empty library");
+        }
+        availability.ensureCapacity(books.size());
+        store.load(books);
+        store.publish();
+        for (int ordinal = 0; ordinal < books.size(); ordinal++) {
+            Book book = books.get(ordinal);
+            publishAvailability(ordinal, book);
+            indexIsbn(book.getIsbn(), ordinal);
+            authorIndex.add(ordinal, book);
+        }
+        // 책마다 갱신하는 대신 한 번에 만드는 경로를 씁니다.
+        titleIndex.addAll(books);
+        categoryStatistics.addAll(0, books);
+        publishDateIndex.addAll(0, books);
+    }
+
+    /**
+     * 스냅샷을 쓰기 위해 현재 카탈로그를 일관된 상태로 복사합니다.
+     */
+    synchronized CatalogView catalogView() {
+        // 기록 번호를 먼저 읽어야 그 앞의 대출/반납이 아래에서 복사하는 대출 상태에 모두 들어 있습니다.
+        long journalSequence = journalSequence();
+        CatalogVersion version = version();
+        List<Book> byOrdinal = new ArrayList<>(version.books());
+        long[] words = new long[(byOrdinal.size() + Long.SIZE - 1) / Long.SIZE];
+        availability.forEach(byOrdinal.size(), true, ordinal -> words[ordinal / Long.SIZE] |= 1L << ordinal);
+        return new CatalogView(byOrdinal, words, categories, journalSequence);
+    }
+
+    static class CatalogView {
+        final List<Book> booksByOrdinal;
+        final long[] availabilityWords;
+        final CategoryDictionary categories;
+        // 이 카탈로그에 반영된 저널 기록 수. 대출/반납은 쓰기 락 없이 들어오므로 그 뒤의 대출 상태가 섞여 있을 수 있지만,
+        // 저널의 대출/반납 기록은 상태를 그대로 담고 있어 다시 적용해도 같은 결과가 됩니다.
+        final long journalSequence;
+
+        CatalogView(List<Book> booksByOrdinal, long[] availabilityWords, CategoryDictionary categories, long journalSequence) {
+            this.booksByOrdinal = booksByOrdinal;
+            this.journalSequence = journalSequence;
+            this.availabilityWords = availabilityWords;
+            this.categories = categories;
+        }
+    }
+
+    // 스냅샷에서 읽은 책의 카테고리를 이 서비스의 사전으로 인코딩할 때 씁니다.
+    CategoryDictionary categoryDictionary() {
+        return categories;
+    }
+
+    /**
+     * 책의 대출 상태를 비트맵에 반영합니다.
+     * 비트를 쓴 뒤 책의 상태를 다시 확인하므로, 여러 스레드가 동시에 대출/반납해도
+     * 마지막으로 비트를 쓴 스레드가 최신 상태를 남기게 됩니다.
+     */
+    private void publishAvailability(int ordinal, Book book) {
+        boolean available;
+        do {
+            available = book.isAvailable();
+            availability.set(ordinal, available);
+        } while (book.isAvailable() != available);
+    }
+
+    // ISBN 인덱스에서 isbn의 사본 목록에 ordinal을 넣습니다. 쓰기 락 안에서만 호출합니다.
+    private void indexIsbn(String isbn, int ordinal) {
+        int[] ordinals = ordinalsByIsbn.get(isbn);
+        if (ordinals == null) {
+            ordinalsByIsbn.put(isbn, new int[]{ordinal});
+            return;
+        }
+        int position = -Arrays.binarySearch(ordinals, ordinal) - 1;
+        int[] grown = new int[ordinals.length + 1];
+        System.arraycopy(ordinals, 0, grown, 0, position);
+        grown[position] = ordinal;
+        System.arraycopy(ordinals, position, grown, position + 1, ordinals.length - position);
+        ordinalsByIsbn.put(isbn, grown);
+    }
+
+    // ISBN 인덱스에서 isbn의 사본 목록에서 ordinal을 뺍니다. 쓰기 락 안에서만 호출합니다.
+    private void unindexIsbn(String isbn, int ordinal) {
+        int[] ordinals = ordinalsByIsbn.get(isbn);
+        int position = ordinals == null ? -1 : Arrays.binarySearch(ordinals, ordinal);
+        if (position < 0) {
+            return;
+        }
+        if (ordinals.length == 1) {
+            ordinalsByIsbn.remove(isbn);
+            return;
+        }
+        int[] shrunk = new int[ordinals.length - 1];
+        System.arraycopy(ordinals, 0, shrunk, 0, position);
+        System.arraycopy(ordinals, position + 1, shrunk, position, shrunk.length - position);
+        ordinalsByIsbn.put(isbn, shrunk);
+    }
+
+    // isbn인 사본들의 ordinal (추가된 순서, 없으면 빈 배열)
+    private int[] ordinalsOf(String isbn) {
+        int[] ordinals = ordinalsByIsbn.get(isbn);
+        return ordinals == null ? NO_ORDINALS : ordinals;
+    }
+
+    // ordinal을 들고 있는 보조 인덱스에 책을 반영합니다. 아직 발행되지 않은 ordinal은 조회에서 걸러지므로 발행 전에 호출합니다.
+    private void indexOrdinal(int ordinal, Book book) {
+        categoryStatistics.add(ordinal, book);
+        authorIndex.add(ordinal, book);
+        publishDateIndex.add(ordinal, book);
+    }
+
+    // 책을 직접 들고 있는 보조 인덱스에 책을 반영합니다. 발행한 뒤에 호출합니다.
+    private void index(Book book) {
+        titleIndex.add(book);
+    }
+
+    // 교체된 책을 책을 직접 들고 있는 보조 인덱스에 반영합니다.
+    private void reindex(Book old, Book updated) {
+        titleIndex.remove(old);
+        titleIndex.add(updated);
     }
 
     /**
@@ -25,123 +295,323 @@ public class LibraryService {
      * @return 조건에 맞는 책들의 리스트
      */
     public List<Book> findBooks(Predicate<Book> predicate) {
-        return books.stream()
+        return version().books().stream()
                 .filter(predicate)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 1 - 1. 구조화된 조건(BookQuery)에 맞는 책들을 찾습니다.
+     * 조건마다 쓸 수 있는 인덱스 중 예상 후보 수가 가장 적은 것으로 후보를 가져오고,
+     * 나머지 조건과 BookValidator는 후보에만 검사합니다. 결과 순서는 선택된 인덱스의 순서를 따릅니다.
+     * @param query 검색 조건
+     * @return 조건에 맞는 책들의 리스트
+     */
+    public List<Book> findBooks(BookQuery query) {
+        return explain(query).execute();
+    }
+
+    /**
+     * 1 - 2. BookQuery를 어떻게 실행할지 실행 계획을 세웁니다.
+     * 느린 검색의 원인을 확인할 때 toString() 결과를 출력해 보면 됩니다.
+     * @param query 검색 조건
+     * @return 실행 계획
+     */
+    public QueryPlan explain(BookQuery query) {
+        Map<String, QueryPlan> accessPaths = new LinkedHashMap<>();
+        Map<String, Predicate<Book>> conditions = new LinkedHashMap<>();
+
+        String isbn = query.getIsbn();
+        if (isbn != null) {
+            String condition = "isbn = '" + isbn + "'";
+            accessPaths.put(condition, new QueryPlan("INDEX " + condition, ordinalsOf(isbn).length,
+                    () -> copiesOf(isbn)));
+            conditions.put(condition, book -> isbn.equals(book.getIsbn()));
+        }
+        String author = query.getAuthor();
+        if (author != null) {
+            String condition = "author = '" + author + "'";
+            accessPaths.put(condition, new QueryPlan("INDEX " + condition, authorIndex.countOf(author),
+                    () -> findBooksByAuthor(author)));
+            conditions.put(condition, book -> author.equals(book.getAuthor()));
+        }
+        String category = query.getCategory();
+        if (category != null) {
+            String condition = "category contains '" + category + "'";
+            accessPaths.put(condition, new QueryPlan("INDEX " + condition, categoryStatistics.count(category),
+                    () -> findBooksByCategory(category)));
+            int categoryId = categories.idOf(category);
+            conditions.put(condition, book -> book.hasCategory(categories, categoryId));
+        }
+        if (query.hasPublishRange()) {
+            LocalDate from = query.getPublishedFrom();
+            LocalDate to = query.getPublishedTo();
+            String condition = from == null ? "publishDate <= " + to
+                    : to == null ? "publishDate >= " + from
+                    : "publishDate between " + from + " and " + to;
+            accessPaths.put(condition, new QueryPlan("INDEX " + condition, publishDateIndex.countBetween(from, to),
+                    () -> findBooksPublishedBetween(from, to)));
+            conditions.put(condition, book -> book.getPublishDate() != null
+                    && (from == null || !book.getPublishDate().isBefore(from))
+                    && (to == null || !book.getPublishDate().isAfter(to)));
+        }
+        Boolean available = query.getAvailable();
+        if (available != null) {
+            String condition = "available = " + available;
+            int availableCount = countAvailableBooks();
+            accessPaths.put(condition, new QueryPlan("BITMAP " + condition,
+                    available ? availableCount : version().ordinalCount() - availableCount,
+                    () -> partitionBooksByAvailability().get(available)));
+            conditions.put(condition, book -> book.isAvailable() == available);
+        }
+
+        String chosen = accessPaths.entrySet().stream()
+                .min(Comparator.comparingLong(entry -> entry.getValue().getEstimatedCandidates()))
+                .map(Map.Entry::getKey)
+                .orElse(null);
+        QueryPlan plan = chosen == null
+                ? new QueryPlan("FULL SCAN", version().books().size(), () -> version().books())
+                : accessPaths.get(chosen);
+        conditions.forEach((condition, predicate) -> {
+            if (!condition.equals(chosen)) {
+                plan.addFilter(condition, predicate);
+            }
+        });
+        List<BookValidator> validators = query.getValidators();
+        for (int i = 0; i < validators.size(); i++) {
+            plan.addFilter("validator #" + (i + 1), validators.get(i)::validate);
+        }
+        return plan;
+    }
+
+    /**
+     * 1 - 3. 제목/저자에 검색어의 모든 단어가 들어 있는 책들을 찾습니다. (AND)
+     * 대소문자를 구분하지 않으며, 단어 끝에 '*'를 붙이면 접두어로 검색합니다. (예: "brave new*")
+     * @param query 공백으로 구분된 검색어
+     * @return 검색어의 모든 단어와 일치하는 책 리스트
+     */
+    public List<Book> searchBooks(String query) {
+        return titleIndex.searchAll(query);
+    }
+
+    /**
+     * 1 - 4. 제목/저자에 검색어의 단어 중 하나라도 들어 있는 책들을 찾습니다. (OR)
+     * @param query 공백으로 구분된 검색어
+     * @return 검색어의 단어 중 하나와 일치하는 책 리스트
+     */
+    public List<Book> searchBooksAnyTerm(String query) {
+        return titleIndex.searchAny(query);
+    }
+
     /**
      * 2. 저자별로 책을 그룹화합니다.
-     * @return 저자별 책 리스트 맵
+     * 호출 시점에 발행된 버전을 저자 인덱스 위에서 보여주는 읽기 전용 뷰를 반환하므로 맵을 미리 만들지 않습니다.
+     * get(저자)은 그 저자의 책만 꺼내며, 맵 전체를 순회할 때만 처음 한 번 전체를 묶습니다.
+     * @return 저자별 책 리스트 맵 (수정 불가)
      */
     public Map<String, List<Book>> groupBooksByAuthor() {
-        return books.stream()
-                .collect(Collectors.groupingBy(Book::getAuthor));
+        return authorIndex.view(version());
+    }
+
+    /**
+     * 2 - 1. 특정 저자의 책들을 가져옵니다.
+     * @param author 저자 이름
+     * @return 저자의 책 리스트 (수정 불가, 없으면 빈 리스트)
+     */
+    public List<Book> findBooksByAuthor(String author) {
+        return authorIndex.booksOf(author);
     }
 
     /**
      * 3. 책의 카테고리별로 책의 개수를 셉니다.
-     * flatMap과 groupingBy를 사용합니다.
+     * 책이 추가/교체될 때 갱신해 둔 카운트를 복사해 반환하므로 비용이 전체 책 수와 무관합니다.
      * @return 카테고리별 책의 개수
      */
     public Map<String, Long> countBooksByCategory() {
-        return books.stream()
-                .flatMap(book -> book.getCategories().stream())
-                .collect(Collectors.groupingBy(category -> category, Collectors.counting()));
+        return categoryStatistics.toMap();
+    }
+
+    /**
+     * 3 - 1. 특정 카테고리에 속한 책들을 가져옵니다.
+     * @param category 카테고리
+     * @return 카테고리에 속한 책 리스트 (책 목록 순서)
+     */
+    public List<Book> findBooksByCategory(String category) {
+        return categoryStatistics.booksIn(category);
     }
 
     /**
      * 4. 가장 인기 있는 카테고리를 찾습니다.
-     * limit, sorted를 사용합니다.
+     * 카테고리는 항상 책 수 순으로 정렬된 상태로 유지되므로 앞에서 n개만 읽습니다.
+     * 책 수가 같으면 카테고리 이름 오름차순입니다.
      * @param n 상위 n개의 인기 카테고리
      * @return 인기 카테고리 리스트
      */
     public List<String> getMostPopularCategories(int n) {
-        return books.stream()
-                .flatMap(book -> book.getCategories().stream())
-                .collect(Collectors.groupingBy(category -> category, Collectors.counting()))
-                .entrySet()
-                .stream()
-                .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
-                .map(Map.Entry::getKey)
-                .limit(n)
-                .collect(Collectors.toList());
+        return categoryStatistics.top(n);
     }
 
     /**
      * 5. 책들의 평균 나이를 구합니다.
-     * mapToLong을 사용합니다.
+     * 평균 나이 = 올해 - 평균 출판 연도 이므로, 미리 집계해 둔 출판 연도 합계와 개수로 O(1)에 계산합니다.
      * @return 평균 책 나이
      */
     public double getAverageBookAge() {
-        return books.stream()
-                .mapToLong(book -> LocalDate.now().getYear() - book.getPublishDate().getYear())
-                .average()
-                .orElse(0);
+        OptionalDouble averagePublishYear = publishDateIndex.averagePublishYear();
+        if (averagePublishYear.isEmpty()) {
+            return 0;
+        }
+        return LocalDate.now().getYear() - averagePublishYear.getAsDouble();
     }
 
     /**
      * 6. 최근에 출판된 책들을 가져옵니다.
-     * sorted와 limit을 사용합니다.
+     * 출판일 인덱스를 최신 날짜부터 n권만 읽습니다.
      * @param n 가져올 책의 수
      * @return 최근 책들의 리스트
      */
     public List<Book> getRecentBooks(int n) {
-        return books.stream()
-                .sorted(Comparator.comparing(Book::getPublishDate).reversed())
-                .limit(n)
-                .collect(Collectors.toList());
+        return publishDateIndex.latest(n);
+    }
+
+    /**
+     * 6 - 1. 출판일이 주어진 범위에 있는 책들을 가져옵니다.
+     * @param from 시작일 (포함, null이면 처음부터)
+     * @param to 종료일 (포함, null이면 끝까지)
+     * @return 출판일 오름차순으로 정렬된 책 리스트
+     */
+    public List<Book> findBooksPublishedBetween(LocalDate from, LocalDate to) {
+        return publishDateIndex.between(from, to);
     }
 
     /**
      * 7 - 1. 책을 대출합니다.
+     * 대출 가능 -> 대출 중 전이를 책의 모니터 안에서 수행하므로 여러 스레드가 같은 책을 동시에 빌려도 한 번만 성공합니다.
+     * 같은 ISBN의 사본이 여러 권이면 먼저 추가된 사본부터 대출 가능한 것을 찾아 빌려줍니다.
+     * 저널이 연결되어 있으면 대출 기록이 fsync된 뒤에 true를 돌려줍니다. 단, 저널을 commit window와 함께 열었으면
+     * 창이 차기 전까지는 fsync를 기다리지 않으므로, 장애가 나면 true를 돌려준 대출을 창 크기만큼까지 잃을 수 있습니다.
      * @param isbn 대출할 책의 ISBN 번호
      * @return 대출 성공 여부
      */
     public boolean lendBook(String isbn) {
-        return books.stream()
-                .filter(book -> book.getIsbn().equals(isbn) && book.isAvailable())
-                .findFirst()
-                .map(book -> {
-                    book.setAvailable(false);
-                    return true;
-                })
-                .orElse(false);
+        int[] ordinals = ordinalsOf(isbn);
+        CatalogVersion version = version();
+        LibraryJournal journal = this.journal;
+        for (int ordinal : ordinals) {
+            Book book = version.bookAt(ordinal);
+            CompletableFuture<Void> durable = changeAvailability(ordinal, book, isbn, false, journal);
+            if (durable == null) {
+                continue;
+            }
+            try {
+                awaitDurable(durable);
+            } catch (RuntimeException e) {
+                // 기록되지 않은 대출은 되돌립니다.
+                changeAvailability(ordinal, book, isbn, true, null);
+                throw e;
+            }
+            return true;
+        }
+        return false;
     }
 
     /**
      * 7 - 2. 책을 반납합니다.
+     * 같은 ISBN의 사본이 여러 권이면 먼저 추가된 사본부터 대출 중인 것을 찾아 반납 처리합니다.
+     * 대출 중인 사본이 없으면 아무것도 하지 않습니다.
+     * 저널에 기록되는 시점은 대출과 같습니다. (commit window와 함께 연 저널이면 장애 시 창 크기만큼의 반납을 잃을 수 있습니다)
      * @param isbn 반납할 책의 ISBN 번호
      */
     public void returnBook(String isbn) {
-        books.stream()
-                .filter(book -> book.getIsbn().equals(isbn))
-                .findFirst()
-                .ifPresent(book -> book.setAvailable(true));
+        int[] ordinals = ordinalsOf(isbn);
+        CatalogVersion version = version();
+        LibraryJournal journal = this.journal;
+        for (int ordinal : ordinals) {
+            CompletableFuture<Void> durable = changeAvailability(ordinal, version.bookAt(ordinal), isbn, true, journal);
+            if (durable != null) {
+                awaitDurable(durable);
+                return;
+            }
+        }
+    }
+
+    /**
+     * ordinal 칸의 책을 대출 가능(available = true) 또는 대출 중(false)으로 바꿉니다.
+     * 읽은 버전 뒤에 책이 교체되었으면 교체한 책을 따라가서 바꾸므로, 교체와 동시에 들어온 대출/반납도 새 책에 반영됩니다.
+     * 상태 전이와 저널 기록 순서가 책마다 일치하도록 모두 책의 모니터 안에서 합니다.
+     * 전이에 CAS를 쓰는 것은 서비스 밖에서 {@link Book#setAvailable(boolean)}을 직접 호출하는 경우에 대비한 것이며, 동시성은 모니터가 보장합니다.
+     * @return 저널 기록이 끝나면 완료되는 future. 이미 그 상태였거나 교체되면서 ISBN이 바뀌었으면 null
+     */
+    private CompletableFuture<Void> changeAvailability(int ordinal, Book book, String isbn, boolean available, LibraryJournal journal) {
+        while (true) {
+            synchronized (book) {
+                Book replacedBy = book.getReplacedBy();
+                if (replacedBy == null) {
+                    if (!Objects.equals(isbn, book.getIsbn()) || !book.compareAndSetAvailable(!available, available)) {
+                        return null;
+                    }
+                    publishAvailability(ordinal, book);
+                    if (journal == null) {
+                        return NOT_JOURNALED;
+                    }
+                    return available ? journal.returned(ordinal) : journal.lend(ordinal);
+                }
+                book = replacedBy;
+            }
+        }
     }
 
     /**
      * 8. 책을 대출 가능 여부에 따라 구분합니다.
+     * 대출 가능 비트맵을 워드 단위로 읽어 나누며, 각 목록은 ordinal(추가된 순서) 순입니다.
+     * 대출 상태는 lendBook, returnBook, updateBookState를 거친 변경만 반영됩니다.
      * @return 대출 가능 여부에 따른 책들의 맵
      */
     public Map<Boolean, List<Book>> partitionBooksByAvailability() {
-        return books.stream()
-                .collect(Collectors.partitioningBy(Book::isAvailable));
+        CatalogVersion version = version();
+        List<Book> available = new ArrayList<>();
+        List<Book> unavailable = new ArrayList<>();
+        availability.forEach(version.ordinalCount(), true, ordinal -> available.add(version.bookAt(ordinal)));
+        availability.forEach(version.ordinalCount(), false, ordinal -> unavailable.add(version.bookAt(ordinal)));
+        Map<Boolean, List<Book>> partitioned = new HashMap<>();
+        partitioned.put(true, available);
+        partitioned.put(false, unavailable);
+        return partitioned;
+    }
+
+    /**
+     * 8 - 1. 대출 가능한 책의 수를 셉니다.
+     * @return 대출 가능한 책의 수
+     */
+    public int countAvailableBooks() {
+        return availability.cardinality();
+    }
+
+    /**
+     * 8 - 2. 대출 가능하면서 조건에 맞는 책들을 찾습니다.
+     * 대출 중인 책은 비트맵 단계에서 걸러지므로 predicate는 대출 가능한 책에만 적용됩니다.
+     * @param predicate 조건을 검사할 Predicate
+     * @return 조건에 맞는 대출 가능한 책 리스트
+     */
+    public List<Book> findAvailableBooks(Predicate<Book> predicate) {
+        List<Book> result = new ArrayList<>();
+        CatalogVersion version = version();
+        availability.forEach(version.ordinalCount(), true, ordinal -> {
+            Book book = version.bookAt(ordinal);
+            if (predicate.test(book)) {
+                result.add(book);
+            }
+        });
+        return result;
     }
 
     /**
      * 9. 가장 많은 책을 출판한 저자를 찾습니다.
-     * entrySet, max, map을 사용합니다.
+     * 저자 인덱스가 책이 추가될 때마다 선두 저자를 갱신해 둡니다.
      * @return 가장 많은 책을 출판한 저자
      */
     public String getMostProlificAuthor() {
-        return books.stream()
-                .collect(Collectors.groupingBy(Book::getAuthor, Collectors.counting()))
-                .entrySet()
-                .stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(null);
+        return authorIndex.leader();
     }
 
     /**
@@ -150,7 +620,7 @@ public class LibraryService {
      * @return 책 제목의 총 길이
      */
     public int getTotalTitleLength() {
-        return books.stream()
+        return version().books().stream()
                 .mapToInt(book -> book.getTitle().length())
                 .sum();
     }
@@ -160,7 +630,18 @@ public class LibraryService {
      * @param processor 책을 처리할 프로세서
      */
     public void processBooks(BookProcessor processor) {
-        books.forEach(processor::process);
+        version().books().forEach(processor::process);
+    }
+
+    /**
+     * 11 - 1. 책들을 청크로 나누어 주어진 풀에서 병렬로 처리합니다.
+     * 처리 순서는 보장되지 않으며, 예외가 난 청크가 있어도 나머지 청크는 끝까지 처리됩니다.
+     * @param processor 책을 처리할 프로세서 (여러 스레드에서 동시에 호출됩니다)
+     * @param executor 풀과 청크 크기 설정
+     * @return 실패한 청크 목록 (모두 성공하면 빈 리스트)
+     */
+    public List<ParallelBookExecutor.ChunkFailure> processBooks(BookProcessor processor, ParallelBookExecutor executor) {
+        return executor.process(version().books(), processor);
     }
 
     /**
@@ -169,7 +650,7 @@ public class LibraryService {
      * @return 검증된 책 리스트
      */
     public List<Book> getValidBooks(BookValidator validator) {
-        return books.stream()
+        return version().books().stream()
                 .filter(validator::validate)
                 .collect(Collectors.toList());
     }
@@ -181,11 +662,34 @@ public class LibraryService {
      * @return 변환된 결과 리스트
      */
     public <T> List<T> transformBooks(BookTransformer<T> transformer) {
-        return books.stream()
+        return version().books().stream()
                 .map(transformer::transform)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 13 - 1. 책들을 청크로 나누어 병렬로 변환합니다. 결과는 책 목록 순서를 유지합니다.
+     * @param transformer 책을 변환할 Transformer (여러 스레드에서 동시에 호출됩니다)
+     * @param executor 풀과 청크 크기 설정
+     * @param <T> 변환된 타입
+     * @return 성공한 청크의 변환 결과와 실패한 청크 목록
+     */
+    public <T> ParallelBookExecutor.Result<T> transformBooks(BookTransformer<T> transformer, ParallelBookExecutor executor) {
+        return executor.transform(version().books(), transformer, true);
+    }
+
+    /**
+     * 13 - 2. 책들을 청크로 나누어 병렬로 변환합니다. 결과는 청크가 끝난 순서대로 모이므로
+     * 순서를 맞추기 위해 기다리지 않습니다.
+     * @param transformer 책을 변환할 Transformer (여러 스레드에서 동시에 호출됩니다)
+     * @param executor 풀과 청크 크기 설정
+     * @param <T> 변환된 타입
+     * @return 성공한 청크의 변환 결과와 실패한 청크 목록
+     */
+    public <T> ParallelBookExecutor.Result<T> transformBooksUnordered(BookTransformer<T> transformer, ParallelBookExecutor executor) {
+        return executor.transform(version().books(), transformer, false);
+    }
+
     /**
      * 14. Supplier를 사용하여 새 책을 생성합니다.
      * @param bookSupplier 새 책을 생성할 Supplier
@@ -197,13 +701,24 @@ public class LibraryService {
 
     /**
      * 15 - 1. ISBN을 기준으로 책을 찾습니다.
+     * 전체 목록을 순회하지 않고 ISBN 인덱스에서 O(1)로 조회합니다. 사본이 여러 권이면 먼저 추가된 책을 돌려줍니다.
      * @param isbn ISBN 번호
      * @return 찾은 책 (Optional로 감싸진 값)
      */
     public Optional<Book> findBookByIsbn(String isbn) {
-        return books.stream()
-                .filter(book -> book.getIsbn().equals(isbn))
-                .findFirst();
+        int[] ordinals = ordinalsOf(isbn);
+        return ordinals.length == 0 ? Optional.empty() : Optional.of(version().bookAt(ordinals[0]));
+    }
+
+    // isbn인 모든 사본 (추가된 순서)
+    private List<Book> copiesOf(String isbn) {
+        int[] ordinals = ordinalsOf(isbn);
+        CatalogVersion version = version();
+        List<Book> copies = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            copies.add(version.bookAt(ordinal));
+        }
+        return copies;
     }
 
     /**
@@ -220,14 +735,95 @@ public class LibraryService {
 
     /**
      * 16 - 1. UnaryOperator를 사용하여 책의 상태를 업데이트합니다.
+     * 교체된 책은 기존 책의 자리(ordinal, 책 목록 순서)를 그대로 이어받으며 O(1)로 교체됩니다.
      * @param isbn 업데이트할 책의 ISBN 번호
      * @param updater 책을 업데이트할 UnaryOperator
      */
     public void updateBookState(String isbn, UnaryOperator<Book> updater) {
-        findBookByIsbn(isbn).ifPresent(book -> {
+        awaitDurable(replaceBooks(Collections.singletonMap(isbn, updater)));
+    }
+
+    /**
+     * 16 - 2. 여러 책을 한 번에 업데이트합니다.
+     * 모든 교체를 마친 뒤 새 버전을 한 번만 발행하므로, 동시 모드에서도 복사가 페이지마다 한 번만 일어나고
+     * 읽는 쪽에서는 묶음 전체가 한꺼번에 보입니다. 없는 ISBN은 건너뜁니다.
+     * updater가 예외를 던지면 그 앞의 교체까지만 반영됩니다.
+     * @param updaters ISBN 번호 -> 책을 업데이트할 UnaryOperator (맵의 순회 순서대로 적용)
+     */
+    public void updateBookStates(Map<String, UnaryOperator<Book>> updaters) {
+        awaitDurable(replaceBooks(updaters));
+    }
+
+    private synchronized CompletableFuture<Void> replaceBooks(Map<String, UnaryOperator<Book>> updaters) {
+        LibraryJournal journal = this.journal;
+        List<Replacement> replacements = new ArrayList<>();
+        List<CompletableFuture<Void>> durable = new ArrayList<>();
+        try {
+            updaters.forEach((isbn, updater) -> {
+                Replacement replacement = replaceBook(isbn, updater, journal, durable);
+                if (replacement != null) {
+                    replacements.add(replacement);
+                }
+            });
+        } finally {
+            store.publish();
+            // 인덱스는 발행한 뒤에 고칩니다. 인덱스에서 찾은 ordinal의 책은 발행된 버전에 이미 교체되어 있어야 합니다.
+            replacements.forEach(this::reindex);
+        }
+        return durable.isEmpty() ? NOT_JOURNALED : CompletableFuture.allOf(durable.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * 발행 없이 isbn의 첫 사본을 교체합니다. 없는 ISBN이면 null을 돌려줍니다.
+     * 교체하는 동안 기존 책의 모니터를 잡고 있으므로 updater가 본 대출 상태가 그대로 새 책의 상태가 되며,
+     * 그 사이의 대출/반납은 교체가 끝난 뒤 새 책에 적용됩니다.
+     */
+    private Replacement replaceBook(String isbn, UnaryOperator<Book> updater, LibraryJournal journal, List<CompletableFuture<Void>> durable) {
+        int[] ordinals = ordinalsOf(isbn);
+        if (ordinals.length == 0) {
+            return null;
+        }
+        int ordinal = ordinals[0];
+        Book book = store.bookAt(ordinal);
+        synchronized (book) {
             Book updatedBook = updater.apply(book);
-            books.remove(book);
-            books.add(updatedBook);
-        });
+            store.replace(ordinal, updatedBook);
+            publishAvailability(ordinal, updatedBook);
+            if (updatedBook != book) {
+                book.setReplacedBy(updatedBook);
+            }
+            if (journal != null) {
+                // 새 책에 대한 대출/반납 기록보다 앞서도록 모니터 안에서 기록합니다.
+                durable.add(journal.update(isbn, updatedBook));
+            }
+            categoryStatistics.replace(ordinal, book, updatedBook);
+            authorIndex.replace(ordinal, book, updatedBook);
+            publishDateIndex.replace(ordinal, book, updatedBook);
+            return new Replacement(ordinal, book, updatedBook);
+        }
+    }
+
+    // 발행된 교체를 ISBN 인덱스와 보조 인덱스에 반영합니다.
+    private void reindex(Replacement replacement) {
+        Book old = replacement.old;
+        Book updated = replacement.updated;
+        if (!Objects.equals(old.getIsbn(), updated.getIsbn())) {
+            // 바뀐 ISBN에 이미 다른 사본이 있으면 그 목록에 ordinal 순서대로 들어갑니다.
+            unindexIsbn(old.getIsbn(), replacement.ordinal);
+            indexIsbn(updated.getIsbn(), replacement.ordinal);
+        }
+        reindex(old, updated);
+    }
+
+    private static class Replacement {
+        private final int ordinal;
+        private final Book old;
+        private final Book updated;
+
+        private Replacement(int ordinal, Book old, Book updated) {
+            this.ordinal = ordinal;
+            this.old = old;
+            this.updated = updated;
+        }
     }
 }
@@ -0,0 +1,220 @@
+package org.speculatingwook.library;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * LibraryService 카탈로그의 바이너리 스냅샷을 쓰고 읽습니다.
+ * <p>
+ * 재시작할 때 책을 addBook으로 한 권씩 다시 넣는 대신, 스냅샷 파일을 FileChannel로 메모리 매핑해
+ * 순서대로 읽고 한 번에 적재합니다. 저자와 카테고리 문자열은 파일 안에서 사전으로 한 번만 저장되고,
+ * 대출 상태는 ordinal 순서의 비트맵 워드로 저장됩니다. 힙 안의 인덱스(ISBN, 저자, 카테고리, 출판일)는
+ * 객체 그래프이므로 파일에 담지 않고, 적재하면서 책 목록을 한 번에 넘겨 일괄로 다시 만듭니다.
+ * 책은 ordinal 순서로 저장되며, ordinal이 곧 책 목록 순서입니다.
+ * 스냅샷에 담긴 저널 기록 수도 함께 저장해, 이 스냅샷에서 시작한 {@link LibraryJournal#replay(LibraryService)}가 그 기록들을 건너뛰게 합니다.
+ * </p>
+ * <pre>
+ * int    MAGIC, VERSION
+ * long   journalSequence
+ * int    bookCount
+ * int    categoryCount, string * categoryCount
+ * int    authorCount,   string * authorCount
+ * book * bookCount (ordinal 순서):
+ *        string title, int authorId, string isbn, long publishEpochDay,
+ *        int categoryCount, int categoryId * categoryCount
+ * long   availabilityWord * ceil(bookCount / 64)
+ * string: int byteLength(-1이면 null) + UTF-8 bytes
+ * </pre>
+ * 매핑 한 번으로 읽으므로 스냅샷 파일은 2GB를 넘을 수 없습니다.
+ */
+public final class LibrarySnapshot {
+    private static final int MAGIC = 0x4C494253; // "LIBS"
+    private static final int VERSION = 3;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private LibrarySnapshot() {
+    }
+
+    /**
+     * 카탈로그를 스냅샷 파일로 씁니다. 임시 파일에 다 쓰고 디스크에 내린 뒤 이름을 바꾸므로 중간에 실패하거나
+     * 전원이 나가도 기존 파일과 새 파일 중 하나가 온전히 남습니다. 이름 바꾸기도 디렉터리를 디스크에 내려 확정합니다.
+     */
+    public static void write(LibraryService libraryService, Path path) throws IOException {
+        write(libraryService.catalogView(), path);
+    }
+
+    static void write(LibraryService.CatalogView catalog, Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+            writeCatalog(catalog, out);
+            out.flush();
+            // 내용이 디스크에 닿기 전에 이름을 바꾸면, 장애 후 새 이름에 빈 파일이나 일부만 쓰인 파일이 남을 수 있습니다.
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(path.toAbsolutePath().getParent());
+    }
+
+    static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // 디렉터리를 열 수 없는 플랫폼(Windows)에서는 이름 바꾸기가 그대로 확정됩니다.
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private static void writeCatalog(LibraryService.CatalogView catalog, DataOutputStream out) throws IOException {
+        List<Book> books = catalog.booksByOrdinal;
+        Map<Integer, Integer> categoryIds = new HashMap<>();
+        List<String> categories = new ArrayList<>();
+        Map<String, Integer> authorIds = new HashMap<>();
+        List<String> authors = new ArrayList<>();
+        for (Book book : books) {
+            for (int id : book.getCategoryIds(catalog.categories)) {
+                categoryIds.computeIfAbsent(id, serviceId -> {
+                    categories.add(catalog.categories.nameOf(serviceId));
+                    return categories.size() - 1;
+                });
+            }
+            if (!authorIds.containsKey(book.getAuthor())) {
+                authorIds.put(book.getAuthor(), authors.size());
+                authors.add(book.getAuthor());
+            }
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(catalog.journalSequence);
+        out.writeInt(books.size());
+        out.writeInt(categories.size());
+        for (String category : categories) {
+            writeString(out, category);
+        }
+        out.writeInt(authors.size());
+        for (String author : authors) {
+            writeString(out, author);
+        }
+        for (Book book : books) {
+            writeString(out, book.getTitle());
+            out.writeInt(authorIds.get(book.getAuthor()));
+            writeString(out, book.getIsbn());
+            out.writeLong(book.getPublishDate() == null ? NO_DATE : book.getPublishDate().toEpochDay());
+            int[] ids = book.getCategoryIds(catalog.categories);
+            out.writeInt(ids.length);
+            for (int id : ids) {
+                out.writeInt(categoryIds.get(id));
+            }
+        }
+        for (long word : catalog.availabilityWords) {
+            out.writeLong(word);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static LibraryService load(Path path) throws IOException {
+        return load(path, false);
+    }
+
+    /**
+     * 스냅샷 파일을 메모리 매핑해 읽어 새 LibraryService를 만듭니다.
+     * @param concurrent 동시 모드로 만들지 여부 (LibraryService(boolean) 참고)
+     */
+    public static LibraryService load(Path path, boolean concurrent) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + channel.size() + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return readCatalog(buffer, concurrent);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated snapshot: " + path, e);
+        }
+    }
+
+    private static LibraryService readCatalog(ByteBuffer in, boolean concurrent) throws IOException {
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a library snapshot");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+        long journalSequence = in.getLong();
+        int bookCount = in.getInt();
+        LibraryService libraryService = new LibraryService(concurrent);
+        CategoryDictionary dictionary = libraryService.categoryDictionary();
+
+        // 파일 안의 카테고리 번호를 새 서비스의 CategoryDictionary id로 한 번만 바꿔 둡니다.
+        int[] categoryIds = new int[in.getInt()];
+        for (int i = 0; i < categoryIds.length; i++) {
+            categoryIds[i] = dictionary.encode(readString(in));
+        }
+        String[] authors = new String[in.getInt()];
+        for (int i = 0; i < authors.length; i++) {
+            authors[i] = readString(in);
+        }
+
+        List<Book> booksByOrdinal = new ArrayList<>(bookCount);
+        for (int i = 0; i < bookCount; i++) {
+            String title = readString(in);
+            String author = authors[in.getInt()];
+            String isbn = readString(in);
+            long epochDay = in.getLong();
+            int[] ids = new int[in.getInt()];
+            for (int c = 0; c < ids.length; c++) {
+                ids[c] = categoryIds[in.getInt()];
+            }
+            LocalDate publishDate = epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+            booksByOrdinal.add(new Book(title, author, isbn, publishDate, dictionary, ids));
+        }
+        for (int w = 0; w < (bookCount + Long.SIZE - 1) / Long.SIZE; w++) {
+            long word = in.getLong();
+            for (int bit = w * Long.SIZE; bit < Math.min(bookCount, (w + 1) * Long.SIZE); bit++) {
+                booksByOrdinal.get(bit).setAvailable((word & (1L << bit)) != 0);
+            }
+        }
+
+        libraryService.load(booksByOrdinal);
+        libraryService.journalReplayed(journalSequence);
+        return libraryService;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+package org.speculatingwook.library;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * 보조 인덱스에서 키 하나(저자, 출판일)에 속한 책들의 ordinal 목록입니다.
+ * <p>
+ * 책 대신 ordinal을 들고 있으므로 키가 그대로인 교체는 목록을 건드리지 않습니다.
+ * 조회할 때는 읽는 쪽 버전에서 ordinal의 책을 꺼내 키가 아직 같은지 확인하므로, 키가 바뀐 책의 ordinal은 바로 지우지 않고
+ * 지나간 항목이 살아 있는 항목보다 많아졌을 때 한 번에 정리합니다. 그 사이 오래된 버전을 읽는 쪽도 그 책을 그대로 찾을 수 있습니다.
+ * 목록은 ordinal 오름차순(책 목록 순서)이며, 동기화는 이 목록을 가진 인덱스가 합니다.
+ * </p>
+ */
+class OrdinalBucket {
+    private int[] ordinals;
+    private int size;
+    // 지금 이 키에 속한 책 수 (지나간 항목 제외)
+    private int live;
+
+    OrdinalBucket() {
+        this(2);
+    }
+
+    // 들어올 책 수를 미리 알 때 (일괄 적재)
+    OrdinalBucket(int expected) {
+        ordinals = new int[Math.max(expected, 2)];
+    }
+
+    /**
+     * 책이 이 키에 들어왔습니다. 예전에 이 키였던 ordinal이 남아 있으면 그 항목을 다시 씁니다.
+     */
+    void add(int ordinal) {
+        live++;
+        if (size == 0 || ordinals[size - 1] < ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+            return;
+        }
+        int position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (size == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, size * 2);
+        }
+        System.arraycopy(ordinals, position, ordinals, position + 1, size - position);
+        ordinals[position] = ordinal;
+        size++;
+    }
+
+    /**
+     * 책 하나가 이 키를 떠났습니다. 지나간 항목이 많아지면 belongs가 false인 ordinal을 지웁니다.
+     * 지운 ordinal은 그보다 오래된 버전에서는 아직 이 키일 수 있으므로, 인덱스는 그런 버전의 조회를 다른 방법으로 처리해야 합니다.
+     * @param belongs 발행된 버전과 아직 발행하지 않은 변경 중 한쪽에서라도 ordinal의 책이 이 키인지
+     * @return 항목을 정리했는지 여부
+     */
+    boolean leave(IntPredicate belongs) {
+        live--;
+        if (size - live <= live + 8) {
+            return false;
+        }
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (belongs.test(ordinals[i])) {
+                ordinals[kept++] = ordinals[i];
+            }
+        }
+        size = kept;
+        return true;
+    }
+
+    int live() {
+        return live;
+    }
+
+    // 지나간 항목까지 포함해 비어 있는지
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * version에서 이 키에 속한 책들을 ordinal 순서로 out에 담습니다.
+     * version 뒤에 추가된 ordinal과, version에서 이미 다른 키인 책은 건너뜁니다.
+     * @param stillHere version의 책이 아직 이 키인지
+     */
+    void collect(CatalogVersion version, Predicate<Book> stillHere, List<Book> out) {
+        int limit = version.ordinalCount();
+        for (int i = 0; i < size && ordinals[i] < limit; i++) {
+            Book book = version.bookAt(ordinals[i]);
+            if (stillHere.test(book)) {
+                out.add(book);
+            }
+        }
+    }
+}
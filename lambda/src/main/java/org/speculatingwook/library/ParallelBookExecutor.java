@@ -0,0 +1,157 @@
+package org.speculatingwook.library;
+
+import org.speculatingwook.library.book.BookProcessor;
+import org.speculatingwook.library.book.BookTransformer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 책 목록을 일정 크기의 청크로 나누어 지정한 ForkJoinPool에서 병렬로 처리합니다.
+ * <p>
+ * 공용 풀(ForkJoinPool.commonPool())을 쓰지 않으므로 오래 걸리는 작업이 다른 병렬 스트림을 막지 않습니다.
+ * 한 청크에서 예외가 나도 다른 청크는 계속 처리되며, 실패한 청크는 {@link ChunkFailure}로 보고됩니다.
+ * OutOfMemoryError 같은 Error는 잡지 않고 호출한 쪽으로 그대로 던집니다.
+ * </p>
+ */
+public class ParallelBookExecutor {
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * @param pool 작업을 실행할 풀. 풀의 생명주기는 호출한 쪽에서 관리합니다.
+     * @param chunkSize 한 작업이 처리할 책 수
+     */
+    public ParallelBookExecutor(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public ForkJoinPool getPool() { return pool; }
+    public int getChunkSize() { return chunkSize; }
+
+    List<ChunkFailure> process(List<Book> books, BookProcessor processor) {
+        List<Chunk<Void>> chunks = run(books, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                processor.process(books.get(i));
+            }
+            return Collections.emptyList();
+        });
+        List<ChunkFailure> failures = new ArrayList<>();
+        for (Chunk<Void> chunk : chunks) {
+            if (chunk.failure != null) {
+                failures.add(chunk.failure);
+            }
+        }
+        return failures;
+    }
+
+    <T> Result<T> transform(List<Book> books, BookTransformer<T> transformer, boolean ordered) {
+        ConcurrentLinkedQueue<T> completionOrder = new ConcurrentLinkedQueue<>();
+        List<Chunk<T>> chunks = run(books, (from, to) -> {
+            List<T> transformed = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                transformed.add(transformer.transform(books.get(i)));
+            }
+            if (!ordered) {
+                completionOrder.addAll(transformed);
+            }
+            return transformed;
+        });
+
+        List<T> results = ordered ? new ArrayList<>(books.size()) : new ArrayList<>(completionOrder);
+        List<ChunkFailure> failures = new ArrayList<>();
+        for (Chunk<T> chunk : chunks) {
+            if (chunk.failure != null) {
+                failures.add(chunk.failure);
+            } else if (ordered) {
+                results.addAll(chunk.results);
+            }
+        }
+        return new Result<>(results, failures);
+    }
+
+    private interface ChunkWork<T> {
+        List<T> apply(int from, int to);
+    }
+
+    private <T> List<Chunk<T>> run(List<Book> books, ChunkWork<T> work) {
+        List<ForkJoinTask<Chunk<T>>> tasks = new ArrayList<>();
+        for (int from = 0; from < books.size(); from += chunkSize) {
+            int start = from;
+            int end = Math.min(from + chunkSize, books.size());
+            tasks.add(pool.submit(() -> {
+                try {
+                    return new Chunk<>(work.apply(start, end), null);
+                } catch (RuntimeException e) {
+                    return new Chunk<T>(null, new ChunkFailure(start, end, e));
+                }
+            }));
+        }
+        List<Chunk<T>> chunks = new ArrayList<>(tasks.size());
+        tasks.forEach(task -> chunks.add(task.join()));
+        return chunks;
+    }
+
+    private static class Chunk<T> {
+        private final List<T> results;
+        private final ChunkFailure failure;
+
+        private Chunk(List<T> results, ChunkFailure failure) {
+            this.results = results;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * 처리에 실패한 청크. [fromIndex, toIndex) 범위의 책들은 결과에서 빠집니다.
+     */
+    public static class ChunkFailure {
+        private final int fromIndex;
+        private final int toIndex;
+        private final Throwable cause;
+
+        ChunkFailure(int fromIndex, int toIndex, Throwable cause) {
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.cause = cause;
+        }
+
+        public int getFromIndex() { return fromIndex; }
+        public int getToIndex() { return toIndex; }
+        public Throwable getCause() { return cause; }
+
+        @Override
+        public String toString() {
+            return "ChunkFailure{" +
+                    "fromIndex=" + fromIndex +
+                    ", toIndex=" + toIndex +
+                    ", cause=" + cause +
+                    '}';
+        }
+    }
+
+    /**
+     * 병렬 변환 결과. 성공한 청크의 결과와 실패한 청크 목록을 함께 담습니다.
+     */
+    public static class Result<T> {
+        private final List<T> results;
+        private final List<ChunkFailure> failures;
+
+        Result(List<T> results, List<ChunkFailure> failures) {
+            this.results = results;
+            this.failures = failures;
+        }
+
+        public List<T> getResults() { return results; }
+        public List<ChunkFailure> getFailures() { return failures; }
+        public boolean hasFailures() { return !failures.isEmpty(); }
+    }
+}
@@ -0,0 +1,145 @@
+package org.speculatingwook.library;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * 출판일 순으로 정렬된 보조 인덱스입니다.
+ * <p>
+ * 최근 n권 조회와 출판일 범위 조회를 전체 정렬 없이 O(log N + n)으로 처리합니다.
+ * 날짜마다 책의 ordinal 목록({@link OrdinalBucket})을 두고 조회할 때 발행된 버전에서 책을 꺼내므로,
+ * 출판일이 같은 책들은 책 목록 순서를 유지하고 출판일이 그대로인 교체는 인덱스를 건드리지 않습니다.
+ * 평균 출판 연도를 O(1)로 구할 수 있도록 출판 연도의 합계와 개수도 함께 관리합니다.
+ * </p>
+ */
+class PublishDateIndex {
+    private final BookStore store;
+    private final NavigableMap<LocalDate, OrdinalBucket> booksByDate = new TreeMap<>();
+    private long publishYearSum;
+    private long datedBookCount;
+
+    PublishDateIndex(BookStore store) {
+        this.store = store;
+    }
+
+    /**
+     * ordinal 칸에 들어간 책을 반영합니다. 발행 전에 호출해도 되며, 발행되기 전까지는 조회 결과에 나오지 않습니다.
+     */
+    synchronized void add(int ordinal, Book book) {
+        LocalDate date = book.getPublishDate();
+        if (date == null) {
+            return;
+        }
+        booksByDate.computeIfAbsent(date, key -> new OrdinalBucket()).add(ordinal);
+        publishYearSum += date.getYear();
+        datedBookCount++;
+    }
+
+    /**
+     * firstOrdinal부터 차례로 놓인 책들을 한 번에 반영합니다. 날짜별로 먼저 모은 뒤 TreeMap에는 날짜마다 한 번만 넣습니다.
+     */
+    synchronized void addAll(int firstOrdinal, List<Book> books) {
+        Map<LocalDate, OrdinalBucket> grouped = new HashMap<>();
+        for (int i = 0; i < books.size(); i++) {
+            LocalDate date = books.get(i).getPublishDate();
+            if (date == null) {
+                continue;
+            }
+            OrdinalBucket bucket = grouped.get(date);
+            if (bucket == null) {
+                bucket = booksByDate.get(date);
+                if (bucket == null) {
+                    bucket = new OrdinalBucket();
+                }
+                grouped.put(date, bucket);
+            }
+            bucket.add(firstOrdinal + i);
+            publishYearSum += date.getYear();
+            datedBookCount++;
+        }
+        booksByDate.putAll(grouped);
+    }
+
+    /**
+     * ordinal 칸의 책이 old에서 updated로 바뀐 것을 반영합니다. 출판일이 같으면 할 일이 없습니다.
+     * 발행 전에 호출해야 합니다. 발행된 버전이 old를 보는 동안에도 old의 날짜 목록에 ordinal이 남아 있어야 하기 때문입니다.
+     */
+    synchronized void replace(int ordinal, Book old, Book updated) {
+        LocalDate date = old.getPublishDate();
+        if (Objects.equals(date, updated.getPublishDate())) {
+            return;
+        }
+        if (date != null) {
+            OrdinalBucket bucket = booksByDate.get(date);
+            CatalogVersion published = store.current();
+            // 읽기는 이 락 안에서 발행된 버전을 읽으므로, 발행된 버전과 발행 전 변경 모두에서 다른 날짜인 ordinal은 바로 지워도 됩니다.
+            boolean dropped = bucket.leave(candidate -> (candidate < published.ordinalCount()
+                    && date.equals(published.bookAt(candidate).getPublishDate()))
+                    || date.equals(store.bookAt(candidate).getPublishDate()));
+            if (dropped && bucket.isEmpty()) {
+                booksByDate.remove(date);
+            }
+            publishYearSum -= date.getYear();
+            datedBookCount--;
+        }
+        add(ordinal, updated);
+    }
+
+    /**
+     * @return 출판 연도의 평균, 책이 없으면 empty
+     */
+    synchronized OptionalDouble averagePublishYear() {
+        return datedBookCount == 0
+                ? OptionalDouble.empty()
+                : OptionalDouble.of((double) publishYearSum / datedBookCount);
+    }
+
+    synchronized List<Book> latest(int n) {
+        CatalogVersion version = store.current();
+        List<Book> result = new ArrayList<>(Math.max(Math.min(n, 64), 0));
+        List<Book> sameDate = new ArrayList<>();
+        for (Map.Entry<LocalDate, OrdinalBucket> entry : booksByDate.descendingMap().entrySet()) {
+            if (result.size() >= n) {
+                break;
+            }
+            sameDate.clear();
+            entry.getValue().collect(version, publishedOn(entry.getKey()), sameDate);
+            result.addAll(sameDate.subList(0, Math.min(sameDate.size(), n - result.size())));
+        }
+        return result;
+    }
+
+    /**
+     * from, to 중 null인 경계는 그쪽으로 열린 범위로 봅니다.
+     */
+    synchronized long countBetween(LocalDate from, LocalDate to) {
+        return range(from, to).values().stream()
+                .mapToLong(OrdinalBucket::live)
+                .sum();
+    }
+
+    synchronized List<Book> between(LocalDate from, LocalDate to) {
+        CatalogVersion version = store.current();
+        List<Book> result = new ArrayList<>();
+        range(from, to).forEach((date, bucket) -> bucket.collect(version, publishedOn(date), result));
+        return result;
+    }
+
+    private static Predicate<Book> publishedOn(LocalDate date) {
+        return book -> date.equals(book.getPublishDate());
+    }
+
+    private NavigableMap<LocalDate, OrdinalBucket> range(LocalDate from, LocalDate to) {
+        if (from != null && to != null) {
+            return from.isAfter(to) ? Collections.emptyNavigableMap() : booksByDate.subMap(from, true, to, true);
+        }
+        if (from != null) {
+            return booksByDate.tailMap(from, true);
+        }
+        if (to != null) {
+            return booksByDate.headMap(to, true);
+        }
+        return booksByDate;
+    }
+}
@@ -0,0 +1,61 @@
+package org.speculatingwook.library;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * BookQuery의 실행 계획입니다.
+ * <p>
+ * 예상 후보 수가 가장 적은 인덱스 하나로 후보를 가져오고(access),
+ * 나머지 조건은 후보마다 필터로 검사합니다. 쓸 수 있는 인덱스가 없으면 전체 목록을 훑습니다.
+ * toString()은 사람이 읽을 수 있는 explain 결과를 돌려줍니다.
+ * </p>
+ */
+public class QueryPlan {
+    private final String access;
+    private final long estimatedCandidates;
+    private final List<String> filters = new ArrayList<>();
+    private final Supplier<Collection<Book>> candidates;
+    private final List<Predicate<Book>> predicates = new ArrayList<>();
+
+    QueryPlan(String access, long estimatedCandidates, Supplier<Collection<Book>> candidates) {
+        this.access = access;
+        this.estimatedCandidates = estimatedCandidates;
+        this.candidates = candidates;
+    }
+
+    void addFilter(String description, Predicate<Book> predicate) {
+        filters.add(description);
+        predicates.add(predicate);
+    }
+
+    List<Book> execute() {
+        List<Book> result = new ArrayList<>();
+        for (Book book : candidates.get()) {
+            if (predicates.stream().allMatch(predicate -> predicate.test(book))) {
+                result.add(book);
+            }
+        }
+        return result;
+    }
+
+    /** 후보를 가져올 때 사용하는 인덱스(또는 FULL SCAN) */
+    public String getAccess() { return access; }
+
+    /** 인덱스에서 가져올 것으로 예상되는 후보 수 */
+    public long getEstimatedCandidates() { return estimatedCandidates; }
+
+    /** 후보마다 검사할 나머지 조건들 */
+    public List<String> getFilters() { return new ArrayList<>(filters); }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(access).append(" (estimated ").append(estimatedCandidates).append(" candidates)");
+        filters.forEach(filter -> sb.append("\n  -> FILTER ").append(filter));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,173 @@
+package org.speculatingwook.library;
+
+import java.util.*;
+
+/**
+ * 책 제목과 저자 이름에 대한 역색인(inverted index)입니다.
+ * <p>
+ * 제목과 저자를 소문자 단어(token)로 나누고, 단어마다 그 단어를 포함한 책들의 목록(posting list)을 둡니다.
+ * 검색어의 단어들에 대한 posting list만 모아 AND(교집합)/OR(합집합)을 계산하므로 전체 책을 훑지 않습니다.
+ * 단어 끝에 '*'를 붙이면 그 단어로 시작하는 모든 단어와 일치합니다. (예: "gats*")
+ * 단어들은 정렬된 상태로 저장되어 있어 접두어 검색은 해당 구간만 읽습니다.
+ * </p>
+ */
+class TitleIndex {
+    private static final char PREFIX_WILDCARD = '*';
+
+    private final NavigableMap<String, Set<Book>> postings = new TreeMap<>();
+
+    synchronized void add(Book book) {
+        for (String term : terms(book)) {
+            postings.computeIfAbsent(term, t -> new LinkedHashSet<>()).add(book);
+        }
+    }
+
+    /**
+     * 여러 책을 한 번에 색인합니다. 단어별로 책을 먼저 모은 뒤 posting list를 그 크기로 한 번에 만들고,
+     * 정렬된 단어 순서대로 TreeMap에 넣으므로 책마다 TreeMap을 내려가는 비용이 없습니다.
+     */
+    synchronized void addAll(List<Book> books) {
+        Map<String, List<Book>> grouped = new HashMap<>();
+        for (Book book : books) {
+            collect(book.getTitle(), book, grouped);
+            collect(book.getAuthor(), book, grouped);
+        }
+        SortedMap<String, Set<Book>> sorted = new TreeMap<>();
+        grouped.forEach((term, termBooks) -> {
+            Set<Book> existing = postings.get(term);
+            Set<Book> merged = new LinkedHashSet<>(((existing == null ? 0 : existing.size()) + termBooks.size()) * 4 / 3 + 1);
+            if (existing != null) {
+                merged.addAll(existing);
+            }
+            merged.addAll(termBooks);
+            sorted.put(term, merged);
+        });
+        // 비어 있는 TreeMap에 정렬된 맵을 넣으면 한 번의 선형 구성으로 끝납니다.
+        postings.putAll(sorted);
+    }
+
+    private static void collect(String text, Book book, Map<String, List<Book>> grouped) {
+        for (String term : tokenize(text)) {
+            List<Book> termBooks = grouped.computeIfAbsent(term, t -> new ArrayList<>(1));
+            // 책을 하나씩 처리하므로 같은 책의 같은 단어는 목록의 마지막 항목과만 겹칩니다.
+            if (termBooks.isEmpty() || termBooks.get(termBooks.size() - 1) != book) {
+                termBooks.add(book);
+            }
+        }
+    }
+
+    synchronized void remove(Book book) {
+        for (String term : terms(book)) {
+            Set<Book> books = postings.get(term);
+            if (books != null && books.remove(book) && books.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private static Set<String> terms(Book book) {
+        Set<String> terms = new HashSet<>(tokenize(book.getTitle()));
+        terms.addAll(tokenize(book.getAuthor()));
+        return terms;
+    }
+
+    /**
+     * 문자와 숫자가 아닌 문자를 기준으로 나누고 소문자로 바꿉니다.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * @return 검색어의 모든 단어를 포함하는 책들. 검색어에 단어가 없으면 빈 리스트
+     */
+    synchronized List<Book> searchAll(String query) {
+        List<Set<Book>> matches = new ArrayList<>();
+        for (QueryTerm term : parse(query)) {
+            Set<Book> books = match(term);
+            if (books.isEmpty()) {
+                return new ArrayList<>();
+            }
+            matches.add(books);
+        }
+        if (matches.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 가장 짧은 posting list를 기준으로 나머지에 포함되는지만 확인합니다.
+        matches.sort(Comparator.comparingInt(Set::size));
+        List<Book> result = new ArrayList<>();
+        for (Book book : matches.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < matches.size() && inAll; i++) {
+                inAll = matches.get(i).contains(book);
+            }
+            if (inAll) {
+                result.add(book);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return 검색어의 단어 중 하나라도 포함하는 책들
+     */
+    synchronized List<Book> searchAny(String query) {
+        Set<Book> result = new LinkedHashSet<>();
+        for (QueryTerm term : parse(query)) {
+            result.addAll(match(term));
+        }
+        return new ArrayList<>(result);
+    }
+
+    private Set<Book> match(QueryTerm term) {
+        if (!term.prefix) {
+            return postings.getOrDefault(term.text, Collections.emptySet());
+        }
+        SortedMap<String, Set<Book>> range = postings.subMap(term.text, term.text + Character.MAX_VALUE);
+        if (range.size() == 1) {
+            return range.values().iterator().next();
+        }
+        Set<Book> books = new LinkedHashSet<>();
+        range.values().forEach(books::addAll);
+        return books;
+    }
+
+    private static List<QueryTerm> parse(String query) {
+        List<QueryTerm> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        for (String raw : query.trim().split("\\s+")) {
+            List<String> tokens = tokenize(raw);
+            for (int i = 0; i < tokens.size(); i++) {
+                boolean prefix = i == tokens.size() - 1 && raw.charAt(raw.length() - 1) == PREFIX_WILDCARD;
+                terms.add(new QueryTerm(tokens.get(i), prefix));
+            }
+        }
+        return terms;
+    }
+
+    private static class QueryTerm {
+        private final String text;
+        private final boolean prefix;
+
+        private QueryTerm(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package org.speculatingwook.music;
 
 
+import org.speculatingwook.common.SnapshotList;
+
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -8,7 +10,7 @@ import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class SongService {
-    private List<Song> songs = new ArrayList<>();
+    private final SnapshotList<Song> songs = new SnapshotList<>();
 
     public void addSong(Song song) {
         songs.add(song);
@@ -171,9 +173,10 @@ public class SongService {
 
     /**
      * 모든 노래 목록을 반환한다.
+     * 복사하지 않은 읽기 전용 스냅샷이며, 이후 노래가 추가되거나 정렬되어도 내용이 바뀌지 않는다.
      */
     public List<Song> getSongs() {
-        return new ArrayList<>(songs);
+        return songs.snapshot();
     }
 }
 
@@ -1,5 +1,7 @@
 package org.speculatingwook.user;
 
+import org.speculatingwook.common.SnapshotList;
+
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -7,7 +9,7 @@ import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class UserService {
-    private List<User> users = new ArrayList<>();
+    private final SnapshotList<User> users = new SnapshotList<>();
 
     public void addUser(User user) {
         users.add(user);
@@ -246,9 +248,10 @@ public class UserService {
 
     /**
      * 모든 사용자 목록을 반환한다.
+     * 복사하지 않은 읽기 전용 스냅샷이며, 이후 사용자가 추가되거나 정렬되어도 내용이 바뀌지 않는다.
      * @return 사용자 목록
      */
     public List<User> getUsers() {
-        return new ArrayList<>(users);
+        return users.snapshot();
     }
 }
@@ -6,6 +6,12 @@ import org.speculatingwook.cinema.Movie;
 import org.speculatingwook.cinema.MovieService;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -452,4 +458,288 @@ public class MovieServiceTest {
         assertEquals("Avengers: Endgame", sortedMovies.get(0).getTitle());
     }
 
+    // ========================================================
+    // G. 인덱스 Tests
+    // ========================================================
+
+    @Test
+    public void testRangeIndex_followsAddedMovies() {
+        // 범위 필터는 오름차순으로 돌려주고, 조회 뒤에 추가된 영화도 반영해야 함.
+        assertEquals(Arrays.asList(132, 136, 148), movieService.getMoviesInDurationRange(130, 150).stream().map(Movie::getDuration).collect(Collectors.toList()));
+        movieService.addMovie(new Movie("Oppenheimer", "Drama", 2023, 4.6, 180, "Christopher Nolan", 975_000_000));
+        movieService.addMovie(new Movie("Dunkirk", "War", 2017, 4.4, 106, "Christopher Nolan", 527_000_000));
+        assertEquals(5, movieService.getMoviesLongerThan(150).size());
+        assertEquals("Dunkirk", movieService.getMoviesWithRatingInRange(0.0, 4.45).get(0).getTitle());
+        assertEquals(Arrays.asList("Avengers: Endgame", "Parasite", "Oppenheimer"), movieService.getMoviesReleasedAfter(2017).stream().map(Movie::getTitle).collect(Collectors.toList()));
+        assertTrue(movieService.getMoviesBetweenYears(2011, 2010).isEmpty());
+    }
+
+    @Test
+    public void testRangeIndex_interleavedAddsMatchStableSort() {
+        // 병합하지 않은 꼬리를 함께 훑는 조회와 병합 뒤의 조회 모두 키 순서(같으면 추가 순서)로 돌려줘야 함.
+        Random random = new Random(7);
+        for (int i = 0; i < 3000; i++) {
+            movieService.addMovie(new Movie("Extra " + i, "Drama", 1990 + random.nextInt(30), random.nextInt(50) / 10.0,
+                    90 + random.nextInt(60), "Someone", random.nextInt(1000)));
+            if (i % 7 == 0) {
+                int from = 90 + random.nextInt(60);
+                int to = from + random.nextInt(20);
+                List<Movie> expected = movieService.getMovies().stream()
+                        .filter(movie -> movie.getDuration() >= from && movie.getDuration() <= to)
+                        .sorted(Comparator.comparingInt(Movie::getDuration))
+                        .collect(Collectors.toList());
+                assertEquals(expected, movieService.getMoviesInDurationRange(from, to));
+            }
+        }
+    }
+
+    @Test
+    public void testSortedView_mergesAddedMoviesAndPages() {
+        // 정렬 뷰는 이미 돌려준 결과를 바꾸지 않고, 이후 추가된 영화를 다음 조회에 반영해야 함.
+        List<Movie> before = movieService.getMoviesSortedByTitleAsc();
+        movieService.addMovie(new Movie("Amelie", "Romance", 2001, 4.3, 122, "Jean-Pierre Jeunet", 174_000_000));
+        assertEquals(7, before.size());
+        assertEquals("Amelie", movieService.getMoviesSortedByTitleAsc().get(0).getTitle());
+        assertEquals("Amelie", movieService.getMoviesSortedByRatingAsc().get(0).getTitle());
+        assertEquals("The Dark Knight", movieService.getMoviesSortedByRatingDesc().get(0).getTitle());
+        assertThrows(UnsupportedOperationException.class, () -> movieService.getMoviesSortedByYearAsc().clear());
+
+        List<Movie> page = movieService.getMoviesSortedPage(MovieSortKey.TITLE, true, 1, 3);
+        assertEquals(Arrays.asList("The Matrix", "The Dark Knight", "Parasite"), page.stream().map(Movie::getTitle).collect(Collectors.toList()));
+        assertTrue(movieService.getMoviesSortedPage(MovieSortKey.TITLE, false, 8, 10).isEmpty());
+        assertEquals(1, movieService.getMoviesSortedPage(MovieSortKey.DURATION, false, 7, Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    public void testTopK_matchesFullSortPrefix() {
+        // topK는 전체 정렬 후 앞에서 k편을 자른 결과와 같아야 함. (동점은 추가된 순서)
+        for (int i = 0; i < 200; i++) {
+            movieService.addMovie(new Movie("Movie " + i, "Drama", 2000 + i % 7, (i % 11) / 2.0, 90 + i % 13, "Director", i % 17));
+        }
+        Comparator<Movie> byRatingDesc = Comparator.comparingDouble(Movie::getRating).reversed();
+        for (int k : new int[]{0, 1, 10, 50, 207, 500}) {
+            List<Movie> expected = movieService.sortMovies(byRatingDesc).subList(0, Math.min(k, 207));
+            assertEquals(expected, movieService.topK(byRatingDesc, k));
+            assertEquals(expected, movieService.topKParallel(byRatingDesc, k));
+        }
+        assertThrows(IllegalArgumentException.class, () -> movieService.topK(byRatingDesc, -1));
+    }
+
+    @Test
+    public void testStatistics_matchesReducingMethods() {
+        // 한 번에 계산한 집계값은 개별 Reducing 메서드와 같아야 하고, 병렬로 모아 합쳐도 같아야 함.
+        MovieStatistics statistics = movieService.getStatistics();
+        assertEquals(movieService.getTotalDuration(), statistics.getTotalDuration());
+        assertEquals(movieService.getTotalBoxOffice(), statistics.getTotalBoxOffice());
+        assertEquals(movieService.getAverageRating(), statistics.getAverageRating(), 0.001);
+        assertEquals(movieService.getEarliestYear(), statistics.getEarliestYear());
+        assertEquals(movieService.getAverageDuration(), statistics.getAverageDuration(), 0.001);
+        assertEquals(movieService.getMaxRatingMovie(), statistics.getMaxRatingMovie());
+        assertEquals(movieService.getMaxBoxOfficeMovie(), statistics.getMaxBoxOfficeMovie());
+        assertEquals(movieService.getTotalBoxOfficeByGenre("Sci-Fi"), statistics.getTotalBoxOfficeByGenre("Sci-Fi"));
+
+        MovieStatistics parallel = movieService.getMovies().parallelStream().collect(MovieStatistics.collector());
+        assertEquals(statistics.getTotalBoxOfficeByGenre(), parallel.getTotalBoxOfficeByGenre());
+        assertEquals(statistics.getSumOfRatings(), parallel.getSumOfRatings(), 0.001);
+        assertEquals(statistics.getMaxRatingMovie(), parallel.getMaxRatingMovie());
+
+        Map<String, MovieStatistics> byGenre = movieService.getMovies().stream()
+                .collect(Collectors.groupingBy(Movie::getGenre, MovieStatistics.collector()));
+        assertEquals("Avengers: Endgame", byGenre.get("Action").getMaxBoxOfficeMovie().orElseThrow().getTitle());
+        assertEquals(0, new MovieService().getStatistics().getEarliestYear());
+    }
+
+    @Test
+    public void testTitleIndex_substringSearch() {
+        // 제목 검색은 짧은/긴 검색어 모두 지원하고, 대소문자 무시 검색은 원래 대소문자와 상관없이 찾아야 함.
+        movieService.addMovie(new Movie("THE DARK KNIGHT RISES", "Action", 2012, 4.4, 164, "Christopher Nolan", 1_081_000_000));
+        assertEquals(1, movieService.getMoviesTitleContains("Dark Knight").size());
+        assertEquals(2, movieService.getMoviesTitleContainsIgnoreCase("dark knight").size());
+        assertEquals(3, movieService.getMoviesTitleContains("ar").size());
+        assertEquals(4, movieService.getMoviesTitleContainsIgnoreCase("ar").size());
+        assertEquals(8, movieService.getMoviesTitleContainsIgnoreCase("").size());
+        assertTrue(movieService.getMoviesTitleContainsIgnoreCase("knightx").isEmpty());
+        assertEquals("Parasite", movieService.getMoviesTitleContainsIgnoreCase("RASI").get(0).getTitle());
+    }
+
+    @Test
+    public void testGroupingIndex_followsAddedMovies() {
+        // 그룹화 결과는 읽기 전용이고, 매번 같은 뷰를 돌려주며 이후 추가된 영화를 반영해야 함.
+        Map<String, List<Movie>> byGenre = movieService.groupMoviesByGenre();
+        assertThrows(UnsupportedOperationException.class, () -> byGenre.get("Sci-Fi").clear());
+        assertThrows(UnsupportedOperationException.class, () -> movieService.getGenreCount().put("Drama", 1L));
+
+        movieService.addMovie(new Movie("Oppenheimer", "Drama", 2023, 4.6, 180, "Christopher Nolan", 975_000_000));
+        assertSame(byGenre, movieService.groupMoviesByGenre());
+        assertEquals(1, byGenre.get("Drama").size());
+        assertEquals(1L, (long) movieService.getGenreCount().get("Drama"));
+        assertEquals(4, movieService.groupMovieTitlesByDirector().get("Christopher Nolan").size());
+        assertEquals(4, movieService.groupMoviesByDirectorSet().get("Christopher Nolan").size());
+        assertEquals(6, movieService.groupMoviesByDurationCategory().get("Medium").size());
+        assertEquals(2, movieService.groupMoviesByDurationCategory().get("Long").size());
+    }
+
+    @Test
+    public void testWeightedSampler_samplesWithoutReplacementAndFollowsAddedMovies() {
+        // 가중치가 0인 영화는 뽑히지 않고, k편 샘플은 중복이 없어야 함. 추가된 영화도 다음 샘플부터 반영되어야 함.
+        MovieSampler nolanOnly = movieService.weightedSampler(
+                movie -> movie.getDirector().equals("Christopher Nolan") ? movie.getBoxOffice() : 0);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Christopher Nolan", nolanOnly.sample().get().getDirector());
+        }
+        List<Movie> sample = nolanOnly.sample(5);
+        assertEquals(3, sample.size());
+        assertEquals(3, new HashSet<>(sample).size());
+
+        // 가중치가 한 편에 몰려 있어도 중복 없이 모두 뽑혀야 함.
+        MovieSampler skewed = movieService.weightedSampler(movie -> movie.getTitle().equals("Titanic") ? 1e12 : 1);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(7, new HashSet<>(skewed.sample(7)).size());
+        }
+        assertTrue(movieService.getRatingWeightedSampler().sample(0).isEmpty());
+        assertTrue(movieService.weightedSampler(movie -> 0).sample().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> movieService.weightedSampler(movie -> -1).sample());
+
+        Movie oppenheimer = new Movie("Oppenheimer", "Drama", 2023, 4.6, 180, "Christopher Nolan", 975_000_000);
+        movieService.addMovie(oppenheimer);
+        assertEquals(4, nolanOnly.sample(5).size());
+        assertTrue(movieService.weightedSampler(movie -> movie == oppenheimer ? 1 : 0).sample().get() == oppenheimer);
+        assertEquals(8, new HashSet<>(movieService.getBoxOfficeWeightedSampler().sample(8)).size());
+    }
+
+    @Test
+    public void testWeightedSampler_followsSuccessiveSamplingDistribution() {
+        // k편 샘플의 첫 자리가 i일 확률은 w_i / W, 앞 두 자리가 (i, j)일 확률은 w_i / W * w_j / (W - w_i)여야 함.
+        // 뽑는 방식(다시 뽑기, 지수 키)과 관계없이 카이제곱 검정(유의수준 1e-6)을 통과해야 함.
+        List<Movie> movies = movieService.getMovies();
+        double[] graded = {1, 2, 3, 4, 5, 6, 7};
+        assertSamplesFollowWeights(movies, graded, 2, true);
+        assertSamplesFollowWeights(movies, graded, 3, true);
+        // 가중치가 한 편에 몰려 있으면 나머지 쌍의 기대 빈도가 너무 작으므로 첫 자리만 검정함.
+        assertSamplesFollowWeights(movies, new double[]{1000, 1, 1, 1, 1, 1, 1}, 2, false);
+        assertSamplesFollowWeights(movies, new double[]{1000, 1, 1, 1, 1, 1, 1}, 7, false);
+    }
+
+    private void assertSamplesFollowWeights(List<Movie> movies, double[] weights, int k, boolean checkPairs) {
+        Map<Movie, Integer> slots = new IdentityHashMap<>();
+        for (int i = 0; i < movies.size(); i++) {
+            slots.put(movies.get(i), i);
+        }
+        MovieSampler sampler = movieService.weightedSampler(movie -> weights[slots.get(movie)]);
+        int n = weights.length;
+        int trials = 40_000;
+        long[] firsts = new long[n];
+        long[][] pairs = new long[n][n];
+        for (int t = 0; t < trials; t++) {
+            List<Movie> sample = sampler.sample(k);
+            int first = slots.get(sample.get(0));
+            firsts[first]++;
+            pairs[first][slots.get(sample.get(1))]++;
+        }
+        double total = Arrays.stream(weights).sum();
+        double firstChiSquare = 0;
+        double pairChiSquare = 0;
+        for (int i = 0; i < n; i++) {
+            double expected = trials * weights[i] / total;
+            firstChiSquare += (firsts[i] - expected) * (firsts[i] - expected) / expected;
+            for (int j = 0; j < n; j++) {
+                if (i != j) {
+                    double expectedPair = expected * weights[j] / (total - weights[i]);
+                    pairChiSquare += (pairs[i][j] - expectedPair) * (pairs[i][j] - expectedPair) / expectedPair;
+                }
+            }
+        }
+        String setting = " for weights " + Arrays.toString(weights) + ", k = " + k;
+        // 자유도 6(= 7 - 1), 41(= 7 * 6 - 1)에서 유의수준 1e-6의 임계값
+        assertTrue(firstChiSquare < 38.26, "first position chi-square " + firstChiSquare + setting);
+        if (checkPairs) {
+            assertTrue(pairChiSquare < 99.17, "ordered pair chi-square " + pairChiSquare + setting);
+        }
+    }
+
+    @Test
+    public void testVersionedSuppliers_recomputeOnlyAfterAddMovie() {
+        // 파생값 Supplier는 영화가 추가되기 전까지 같은 결과 객체를 돌려주고, 추가된 뒤에는 새 값을 계산해야 함.
+        Supplier<List<Movie>> sorted = movieService.supplySortedMoviesSupplier();
+        Supplier<List<Movie>> movies = movieService.getMoviesSupplier();
+        List<Movie> firstSorted = sorted.get();
+        List<Movie> firstMovies = movies.get();
+        Long firstTotal = movieService.supplyTotalBoxOfficeSupplier().get();
+        assertSame(firstSorted, sorted.get());
+        assertSame(firstMovies, movies.get());
+        assertSame(firstTotal, movieService.supplyTotalBoxOfficeSupplier().get());
+        assertThrows(UnsupportedOperationException.class, () -> firstMovies.add(null));
+
+        movieService.addMovie(new Movie("Amelie", "Romance", 2001, 4.4, 122, "Jean-Pierre Jeunet", 174_000_000));
+        assertEquals(7, firstMovies.size());
+        assertEquals(8, movies.get().size());
+        assertEquals("Amelie", sorted.get().get(0).getTitle());
+        assertEquals(firstTotal + 174_000_000, (long) movieService.supplyTotalBoxOfficeSupplier().get());
+        assertEquals(movieService.getAverageRating(), movieService.supplyAverageRatingSupplier().get(), 1e-9);
+        assertEquals(movieService.getMoviesSortedByTitleAsc(), sorted.get());
+        assertThrows(UnsupportedOperationException.class, () -> sorted.get().remove(0));
+    }
+
+    @Test
+    public void testSortedMoviesSupplier_safeWhileSortedViewIsRead() throws Exception {
+        // Supplier는 여러 스레드에서 get()해도 되므로, 다른 스레드가 정렬 뷰를 읽는(밀린 영화를 병합하는) 동안에도 결과가 맞아야 함.
+        Supplier<List<Movie>> sorted = movieService.supplySortedMoviesSupplier();
+        movieService.getMoviesSortedByTitleAsc();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 50; round++) {
+                for (int i = 0; i < 200; i++) {
+                    movieService.addMovie(new Movie("Extra " + round + "-" + (i * 7919 % 200), "Drama", 2000, 3.0, 100, "Someone", 1));
+                }
+                List<Movie> expected = new ArrayList<>(movieService.getMovies());
+                expected.sort(Comparator.comparing(Movie::getTitle));
+                List<Future<List<Movie>>> results = new ArrayList<>();
+                results.add(executor.submit(movieService::getMoviesSortedByTitleAsc));
+                for (int t = 0; t < 3; t++) {
+                    results.add(executor.submit(sorted::get));
+                }
+                for (Future<List<Movie>> result : results) {
+                    assertEquals(expected, result.get(10, TimeUnit.SECONDS));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMoviesSnapshot_isImmutableAndUnaffectedByAddMovie() {
+        // getMovies()는 복사 없는 읽기 전용 스냅샷이며, 이후 추가된 영화는 새 스냅샷에만 보여야 함.
+        List<Movie> before = movieService.getMovies();
+        assertSame(before, movieService.getMovies());
+        assertTrue(before instanceof RandomAccess);
+        assertTrue(before.spliterator().hasCharacteristics(Spliterator.IMMUTABLE | Spliterator.SIZED));
+        Movie first = before.get(0);
+        assertThrows(UnsupportedOperationException.class, () -> before.add(first));
+        assertThrows(UnsupportedOperationException.class, () -> before.set(0, first));
+        assertThrows(UnsupportedOperationException.class, () -> before.remove(0));
+        assertThrows(UnsupportedOperationException.class, before::clear);
+        assertThrows(UnsupportedOperationException.class, () -> before.removeIf(movie -> true));
+        assertThrows(UnsupportedOperationException.class, () -> before.sort(Comparator.comparing(Movie::getTitle)));
+        assertThrows(UnsupportedOperationException.class, () -> {
+            Iterator<Movie> iterator = before.iterator();
+            iterator.next();
+            iterator.remove();
+        });
+
+        for (int i = 0; i < 100; i++) {
+            movieService.addMovie(new Movie("Extra " + i, "Drama", 2000, 3.0, 100, "Someone", 1));
+        }
+        List<Movie> after = movieService.getMovies();
+        assertEquals(7, before.size());
+        assertEquals(7, before.stream().count());
+        assertEquals("Parasite", before.get(6).getTitle());
+        assertThrows(IndexOutOfBoundsException.class, () -> before.get(7));
+        assertEquals(107, after.size());
+        assertEquals(after.subList(0, 7), before);
+        for (int i = 0; i < 7; i++) {
+            assertSame(before.get(i), after.get(i));
+        }
+        assertEquals(107, after.parallelStream().filter(Objects::nonNull).count());
+    }
 }
@@ -0,0 +1,238 @@
+package org.speculatingwook.library;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 동시 대출 모드(new LibraryService(true))에 대한 멀티 스레드 스트레스 테스트.
+ */
+public class LibraryServiceConcurrencyTest {
+    private static final int BOOK_COUNT = 1_000;
+    private static final int THREADS = 8;
+
+    private LibraryService libraryService;
+
+    @BeforeEach
+    public void setUp() {
+        libraryService = new LibraryService(true);
+        for (int i = 0; i < BOOK_COUNT; i++) {
+            libraryService.addBook(newBook(i));
+        }
+    }
+
+    private static Book newBook(int i) {
+        return new Book("Title " + i, "Author " + (i % 10), String.valueOf(i), LocalDate.of(2000, 1, 1), Arrays.asList("Fiction"));
+    }
+
+    // 모든 스레드가 모든 책을 동시에 빌리려 해도 책마다 정확히 한 번만 대출되어야 한다.
+    @Test
+    public void testNoBookIsLentTwice() throws Exception {
+        AtomicIntegerArray lendCount = new AtomicIntegerArray(BOOK_COUNT);
+        runConcurrently(thread -> {
+            for (int i = 0; i < BOOK_COUNT; i++) {
+                // 스레드마다 시작 위치를 달리해서 경합이 골고루 일어나게 한다.
+                int isbn = (i + thread * 97) % BOOK_COUNT;
+                if (libraryService.lendBook(String.valueOf(isbn))) {
+                    lendCount.incrementAndGet(isbn);
+                }
+            }
+        });
+
+        for (int i = 0; i < BOOK_COUNT; i++) {
+            assertEquals(1, lendCount.get(i), "ISBN " + i);
+        }
+        assertEquals(0, libraryService.findBooks(Book::isAvailable).size());
+    }
+
+    // 대출과 반납이 섞여도 한 책을 동시에 가진 대출자는 한 명 이하여야 한다.
+    @Test
+    public void testLendAndReturnKeepSingleHolder() throws Exception {
+        AtomicIntegerArray holders = new AtomicIntegerArray(BOOK_COUNT);
+        AtomicInteger violations = new AtomicInteger();
+        runConcurrently(thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int n = 0; n < 20_000; n++) {
+                int isbn = random.nextInt(BOOK_COUNT);
+                if (libraryService.lendBook(String.valueOf(isbn))) {
+                    if (holders.incrementAndGet(isbn) != 1) {
+                        violations.incrementAndGet();
+                    }
+                    holders.decrementAndGet(isbn);
+                    libraryService.returnBook(String.valueOf(isbn));
+                }
+            }
+        });
+
+        assertEquals(0, violations.get());
+        assertEquals(BOOK_COUNT, libraryService.findBooks(Book::isAvailable).size());
+    }
+
+    // 대출/반납과 같은 책의 교체가 겹쳐도 대출 상태가 사라지거나 한 책을 두 명이 동시에 가지면 안 된다.
+    @Test
+    public void testUpdateWhileLending() throws Exception {
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger violations = new AtomicInteger();
+        runConcurrently(thread -> {
+            if (thread == 0) {
+                for (int n = 0; n < 20_000; n++) {
+                    libraryService.updateBookState("0", book -> {
+                        Book copy = newBook(0);
+                        copy.setAvailable(book.isAvailable());
+                        return copy;
+                    });
+                }
+            } else {
+                for (int n = 0; n < 20_000; n++) {
+                    if (libraryService.lendBook("0")) {
+                        if (holders.incrementAndGet() != 1) {
+                            violations.incrementAndGet();
+                        }
+                        holders.decrementAndGet();
+                        libraryService.returnBook("0");
+                    }
+                }
+            }
+        });
+
+        assertEquals(0, violations.get());
+        assertTrue(libraryService.findBookByIsbn("0").orElseThrow().isAvailable());
+        assertEquals(BOOK_COUNT, libraryService.countAvailableBooks());
+    }
+
+    // 책이 추가되는 동안에도 목록을 읽는 쪽에서 예외가 나면 안 된다.
+    @Test
+    public void testReadWhileAdding() throws Exception {
+        runConcurrently(thread -> {
+            if (thread == 0) {
+                for (int i = BOOK_COUNT; i < BOOK_COUNT * 2; i++) {
+                    libraryService.addBook(newBook(i));
+                }
+            } else {
+                for (int n = 0; n < 200; n++) {
+                    libraryService.findBooks(book -> book.getAuthor().equals("Author 1"));
+                    libraryService.lendBook(String.valueOf(n));
+                }
+            }
+        });
+
+        assertEquals(BOOK_COUNT * 2, libraryService.findBooks(book -> true).size());
+        assertTrue(libraryService.findBookByIsbn(String.valueOf(BOOK_COUNT * 2 - 1)).isPresent());
+    }
+
+    // 쓰기 도중의 읽기는 하나의 버전만 보아야 한다. (교체 중인 책이 두 번 보이거나 빠지면 안 된다)
+    @Test
+    public void testReadsSeeConsistentSnapshots() throws Exception {
+        AtomicInteger tornReads = new AtomicInteger();
+        runConcurrently(thread -> {
+            if (thread == 0) {
+                for (int n = 0; n < 2_000; n++) {
+                    int isbn = n % BOOK_COUNT;
+                    libraryService.updateBookState(String.valueOf(isbn), book -> newBook(isbn));
+                    if (n % 10 == 0) {
+                        libraryService.addBooks(Arrays.asList(newBook(BOOK_COUNT + n), newBook(BOOK_COUNT + n + 1)));
+                    }
+                }
+            } else {
+                for (int n = 0; n < 200; n++) {
+                    List<Book> all = libraryService.findBooks(book -> true);
+                    Set<String> isbns = new HashSet<>();
+                    all.forEach(book -> isbns.add(book.getIsbn()));
+                    if (isbns.size() != all.size() || all.size() % 2 != 0) {
+                        tornReads.incrementAndGet();
+                    }
+                    Map<String, List<Book>> byAuthor = libraryService.groupBooksByAuthor();
+                    if (byAuthor.values().stream().mapToInt(List::size).sum() % 2 != 0) {
+                        tornReads.incrementAndGet();
+                    }
+                    libraryService.countBooksByCategory();
+                }
+            }
+        });
+
+        assertEquals(0, tornReads.get());
+        assertEquals(BOOK_COUNT + 400, libraryService.findBooks(book -> true).size());
+    }
+
+    // 책이 추가되자마자 들어온 대출도 추가 기록 뒤에 기록되어, 저널을 다시 적용하면 같은 상태가 되어야 한다.
+    @Test
+    public void testLendRacingAddReplays() throws Exception {
+        int added = 400;
+        Path path = Files.createTempFile("library", ".journal");
+        try {
+            LibraryService journaled = new LibraryService(true);
+            try (LibraryJournal journal = LibraryJournal.open(path)) {
+                journaled.attachJournal(journal);
+                runConcurrently(thread -> {
+                    if (thread == 0) {
+                        for (int i = 0; i < added; i += 2) {
+                            if (i % 4 == 0) {
+                                journaled.addBook(newBook(i));
+                                journaled.addBook(newBook(i + 1));
+                            } else {
+                                journaled.addBooks(Arrays.asList(newBook(i), newBook(i + 1)));
+                            }
+                        }
+                    } else {
+                        // 스레드마다 맡은 ISBN을 추가되는 즉시 빌린다.
+                        for (int i = thread - 1; i < added; i += THREADS - 1) {
+                            while (!journaled.lendBook(String.valueOf(i))) {
+                                Thread.yield();
+                            }
+                        }
+                    }
+                });
+            }
+            assertEquals(0, journaled.countAvailableBooks());
+
+            LibraryService restored = new LibraryService(true);
+            try (LibraryJournal journal = LibraryJournal.open(path)) {
+                assertEquals(added * 2, journal.replay(restored));
+            }
+            assertEquals(journaled.transformBooks(Book::toString), restored.transformBooks(Book::toString));
+            assertEquals(0, restored.countAvailableBooks());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(Task task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
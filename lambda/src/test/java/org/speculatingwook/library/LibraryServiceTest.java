@@ -6,11 +6,17 @@ import org.speculatingwook.library.book.BookProcessor;
 import org.speculatingwook.library.book.BookTransformer;
 import org.speculatingwook.library.book.BookValidator;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -93,6 +99,23 @@ public class LibraryServiceTest {
         assertTrue(libraryService.lendBook("1234"));
     }
 
+    // 7 - 1 같은 ISBN의 사본이 두 권이면 첫 사본이 대출 중이어도 두 번째 사본을 빌릴 수 있다.
+    @Test
+    public void testLendAndReturnSecondCopy() {
+        Book secondCopy = new Book("1984", "George Orwell", "1234", LocalDate.of(1949, 6, 8), Arrays.asList("Dystopian", "Political fiction"));
+        libraryService.addBook(secondCopy);
+
+        assertTrue(libraryService.lendBook("1234"));
+        assertTrue(libraryService.lendBook("1234"));
+        assertFalse(secondCopy.isAvailable());
+        assertFalse(libraryService.lendBook("1234"));
+
+        libraryService.returnBook("1234");
+        assertEquals(1, libraryService.findBooks(book -> book.getIsbn().equals("1234") && book.isAvailable()).size());
+        assertTrue(libraryService.lendBook("1234"));
+        assertEquals(2, libraryService.findBooks(new BookQuery().isbn("1234")).size());
+    }
+
     /**
      * 3단계
      */
@@ -182,4 +205,366 @@ public class LibraryServiceTest {
         libraryService.updateBookState("1234", makeUnavailable);
         assertFalse(libraryService.findBookByIsbn("1234").orElseThrow().isAvailable());
     }
+
+    /**
+     * 인덱스
+     */
+
+    // ISBN 인덱스는 updateBookState로 교체된 책을 가리켜야 한다.
+    @Test
+    public void testIsbnIndexFollowsUpdatedBook() {
+        Book replacement = new Book("Nineteen Eighty-Four", "George Orwell", "1234", LocalDate.of(1949, 6, 8), Arrays.asList("Dystopian"));
+        libraryService.updateBookState("1234", book -> replacement);
+        assertSame(replacement, libraryService.findBookByIsbn("1234").orElseThrow());
+        assertTrue(libraryService.lendBook("1234"));
+        assertFalse(replacement.isAvailable());
+        assertFalse(libraryService.lendBook("0000"));
+    }
+
+    // 다른 책이 쓰고 있는 ISBN으로 바꿔도 그 책이 인덱스에서 사라지면 안 된다.
+    @Test
+    public void testUpdateToExistingIsbnKeepsBothCopies() {
+        libraryService.updateBookState("1121", book -> new Book(book.getTitle(), book.getAuthor(), "1234", book.getPublishDate(), book.getCategories()));
+
+        assertEquals("1984", libraryService.findBookByIsbn("1234").orElseThrow().getTitle());
+        assertFalse(libraryService.findBookByIsbn("1121").isPresent());
+        assertTrue(libraryService.lendBook("1234"));
+        assertTrue(libraryService.lendBook("1234"));
+        assertFalse(libraryService.lendBook("1234"));
+        assertEquals(2, libraryService.findBooks(new BookQuery().isbn("1234")).size());
+    }
+
+    // 교체된 책은 목록과 저자, 카테고리 인덱스에서 기존 자리를 유지해야 하고, 일괄 교체는 없는 ISBN을 건너뛰어야 한다.
+    @Test
+    public void testUpdateBookStatesKeepsPositions() {
+        List<String> isbns = libraryService.transformBooks(Book::getIsbn);
+        Map<String, UnaryOperator<Book>> updaters = new LinkedHashMap<>();
+        updaters.put("1234", book -> new Book(book.getTitle() + " (2nd ed.)", book.getAuthor(), book.getIsbn(), book.getPublishDate(), book.getCategories()));
+        updaters.put("9101", book -> new Book(book.getTitle() + " (2nd ed.)", book.getAuthor(), book.getIsbn(), book.getPublishDate(), book.getCategories()));
+        updaters.put("0000", book -> {
+            throw new AssertionError("no such book");
+        });
+        libraryService.updateBookStates(updaters);
+
+        assertEquals(isbns, libraryService.transformBooks(Book::getIsbn));
+        assertEquals("1984 (2nd ed.)", libraryService.getValidBooks(book -> true).get(0).getTitle());
+        assertEquals("The Great Gatsby (2nd ed.)", libraryService.findBookByIsbn("9101").orElseThrow().getTitle());
+        assertEquals("1984 (2nd ed.)", libraryService.findBooksByAuthor("George Orwell").get(0).getTitle());
+        assertEquals("1984 (2nd ed.)", libraryService.findBooksByCategory("Dystopian").get(0).getTitle());
+        assertEquals(1, libraryService.searchBooks("2nd gatsby").size());
+    }
+
+    // 카테고리 카운트, 인기 카테고리, 카테고리별 책 목록은 책 교체를 반영해야 한다. 목록은 책 목록 순서를 따른다.
+    @Test
+    public void testCategoryCountsFollowUpdates() {
+        libraryService.updateBookState("3141", book -> new Book(book.getTitle(), book.getAuthor(), book.getIsbn(), book.getPublishDate(), Arrays.asList("Science fiction", "Allegory")));
+        Map<String, Long> categoryCount = libraryService.countBooksByCategory();
+        assertEquals(1L, (long) categoryCount.get("Dystopian"));
+        assertEquals(2L, (long) categoryCount.get("Allegory"));
+        assertEquals(Arrays.asList("Allegory"), libraryService.getMostPopularCategories(1));
+        assertEquals(9, libraryService.getMostPopularCategories(100).size());
+        assertEquals(Arrays.asList("1121", "3141"), isbnsIn("Allegory"));
+        assertEquals(Arrays.asList("1234"), isbnsIn("Dystopian"));
+
+        libraryService.updateBookState("3141", book -> new Book(book.getTitle(), book.getAuthor(), book.getIsbn(), book.getPublishDate(), Arrays.asList("Dystopian", "Allegory", "Allegory")));
+        assertEquals(Arrays.asList("1234", "3141"), isbnsIn("Dystopian"));
+        assertEquals(3L, (long) libraryService.countBooksByCategory().get("Allegory"));
+        assertFalse(libraryService.countBooksByCategory().containsKey("Science fiction"));
+        assertTrue(libraryService.findBooksByCategory("Science fiction").isEmpty());
+    }
+
+    private List<String> isbnsIn(String category) {
+        return libraryService.findBooksByCategory(category).stream().map(Book::getIsbn).collect(Collectors.toList());
+    }
+
+    // 카테고리에 null이 있으면 어느 위치인지 알려 주며 거절하고, 카테고리 뷰는 책마다 한 번만 만들어야 한다.
+    @Test
+    public void testCategoriesRejectNullAndCacheView() {
+        NullPointerException e = assertThrows(NullPointerException.class,
+                () -> new Book("Title", "Author", "0000", LocalDate.of(2000, 1, 1), Arrays.asList("Fiction", null)));
+        assertTrue(e.getMessage().contains("index 1"));
+
+        Book book = libraryService.findBookByIsbn("1234").orElseThrow();
+        assertSame(book.getCategories(), book.getCategories());
+        assertThrows(UnsupportedOperationException.class, () -> book.getCategories().add("Allegory"));
+    }
+
+    // 저자 인덱스는 읽기 전용이며 책 교체에 따라 선두 저자가 바뀌어야 한다.
+    @Test
+    public void testAuthorIndexFollowsUpdates() {
+        Map<String, List<Book>> booksByAuthor = libraryService.groupBooksByAuthor();
+        assertThrows(UnsupportedOperationException.class, () -> booksByAuthor.get("George Orwell").clear());
+
+        libraryService.updateBookState("1234", book -> new Book(book.getTitle(), "Aldous Huxley", book.getIsbn(), book.getPublishDate(), book.getCategories()));
+        assertEquals(1, libraryService.findBooksByAuthor("George Orwell").size());
+        assertEquals(2, libraryService.findBooksByAuthor("Aldous Huxley").size());
+        assertEquals("Aldous Huxley", libraryService.getMostProlificAuthor());
+        assertTrue(libraryService.findBooksByAuthor("Nobody").isEmpty());
+    }
+
+    // 출판일 인덱스로 범위 조회를 할 수 있어야 한다.
+    @Test
+    public void testFindBooksPublishedBetween() {
+        List<Book> books = libraryService.findBooksPublishedBetween(LocalDate.of(1932, 1, 1), LocalDate.of(1949, 6, 8));
+        assertEquals(Arrays.asList("3141", "1121", "1234"), Arrays.asList(books.get(0).getIsbn(), books.get(1).getIsbn(), books.get(2).getIsbn()));
+        assertEquals(3, books.size());
+        assertEquals("5678", libraryService.getRecentBooks(1).get(0).getIsbn());
+        assertEquals(5, libraryService.getRecentBooks(10).size());
+    }
+
+    // 출판일 범위의 한쪽 경계가 null이면 그쪽은 제한 없이 검색해야 한다. (조건이 빠지면 안 된다)
+    @Test
+    public void testPublishedRangeWithOpenBound() {
+        List<Book> since1945 = libraryService.findBooksPublishedBetween(LocalDate.of(1945, 8, 17), null);
+        assertEquals(Arrays.asList("Animal Farm", "1984", "To Kill a Mockingbird"), since1945.stream().map(Book::getTitle).collect(Collectors.toList()));
+        List<Book> until1932 = libraryService.findBooksPublishedBetween(null, LocalDate.of(1932, 1, 1));
+        assertEquals(Arrays.asList("The Great Gatsby", "Brave New World"), until1932.stream().map(Book::getTitle).collect(Collectors.toList()));
+
+        BookQuery query = new BookQuery().publishedBetween(LocalDate.of(1940, 1, 1), null);
+        QueryPlan plan = libraryService.explain(query);
+        assertEquals("INDEX publishDate >= 1940-01-01", plan.getAccess());
+        assertEquals(3, plan.getEstimatedCandidates());
+        assertEquals(3, libraryService.findBooks(query).size());
+        assertEquals(0, libraryService.findBooks(new BookQuery().publishedBetween(null, LocalDate.of(1940, 1, 1)).author("George Orwell")).size());
+    }
+
+    // 평균 나이는 책 교체 후에도 전체를 다시 계산한 값과 같아야 한다.
+    @Test
+    public void testAverageBookAgeFollowsUpdates() {
+        libraryService.updateBookState("9101", book -> new Book(book.getTitle(), book.getAuthor(), book.getIsbn(), LocalDate.of(2000, 1, 1), book.getCategories()));
+        int currentYear = LocalDate.now().getYear();
+        double expected = currentYear - (1949 + 1960 + 2000 + 1945 + 1932) / 5.0;
+        assertEquals(expected, libraryService.getAverageBookAge(), 1e-9);
+        assertEquals(0.0, new LibraryService().getAverageBookAge());
+    }
+
+    // 대출 가능 비트맵은 대출, 반납, 책 교체를 모두 반영해야 한다.
+    @Test
+    public void testAvailabilityBitmapQueries() {
+        libraryService.lendBook("1234");
+        libraryService.lendBook("3141");
+        assertEquals(3, libraryService.countAvailableBooks());
+        assertEquals(1, libraryService.findAvailableBooks(book -> book.getAuthor().equals("George Orwell")).size());
+
+        libraryService.returnBook("3141");
+        libraryService.updateBookState("5678", book -> {
+            book.setAvailable(false);
+            return book;
+        });
+        assertEquals(3, libraryService.countAvailableBooks());
+        Map<Boolean, List<Book>> partitionedBooks = libraryService.partitionBooksByAvailability();
+        assertEquals(Arrays.asList("9101", "1121", "3141"), Arrays.asList(partitionedBooks.get(true).get(0).getIsbn(), partitionedBooks.get(true).get(1).getIsbn(), partitionedBooks.get(true).get(2).getIsbn()));
+        assertEquals(2, partitionedBooks.get(false).size());
+    }
+
+    // BookQuery는 가장 선택도가 높은 인덱스로 후보를 가져와야 한다.
+    @Test
+    public void testFindBooksByQuery() {
+        BookQuery query = new BookQuery()
+                .category("Dystopian")
+                .author("George Orwell")
+                .available(true)
+                .where(book -> book.getTitle().length() == 4);
+        List<Book> books = libraryService.findBooks(query);
+        assertEquals(1, books.size());
+        assertEquals("1234", books.get(0).getIsbn());
+
+        QueryPlan plan = libraryService.explain(new BookQuery().isbn("1234").category("Dystopian"));
+        assertEquals("INDEX isbn = '1234'", plan.getAccess());
+        assertEquals(Arrays.asList("category contains 'Dystopian'"), plan.getFilters());
+
+        libraryService.lendBook("1234");
+        plan = libraryService.explain(new BookQuery().available(false).author("George Orwell"));
+        assertEquals(1, plan.getEstimatedCandidates());
+        assertEquals(1, libraryService.findBooks(new BookQuery().available(false).author("George Orwell")).size());
+
+        assertEquals("FULL SCAN", libraryService.explain(new BookQuery()).getAccess());
+        assertEquals(5, libraryService.findBooks(new BookQuery()).size());
+    }
+
+    // 병렬 변환은 순서를 유지해야 하고, 실패한 청크만 결과에서 빠져야 한다.
+    @Test
+    public void testParallelTransformBooks() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ParallelBookExecutor executor = new ParallelBookExecutor(pool, 2);
+            ParallelBookExecutor.Result<String> ordered = libraryService.transformBooks(Book::getTitle, executor);
+            assertEquals(libraryService.transformBooks(Book::getTitle), ordered.getResults());
+            assertFalse(ordered.hasFailures());
+
+            ParallelBookExecutor.Result<String> unordered = libraryService.transformBooksUnordered(book -> {
+                if (book.getIsbn().equals("9101")) {
+                    throw new IllegalStateException("broken record");
+                }
+                return book.getIsbn();
+            }, executor);
+            assertEquals(3, unordered.getResults().size());
+            assertEquals(1, unordered.getFailures().size());
+            assertEquals(2, unordered.getFailures().get(0).getFromIndex());
+
+            AtomicInteger count = new AtomicInteger();
+            assertTrue(libraryService.processBooks(book -> count.incrementAndGet(), executor).isEmpty());
+            assertEquals(5, count.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // 스냅샷으로 저장했다가 다시 읽으면 책, 대출 상태, 인덱스가 모두 복원되어야 한다.
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        libraryService.lendBook("5678");
+        libraryService.updateBookState("1234", book -> book);
+        Path snapshot = Files.createTempFile("library", ".snapshot");
+        try {
+            LibrarySnapshot.write(libraryService, snapshot);
+            LibraryService restored = LibrarySnapshot.load(snapshot);
+
+            assertEquals(libraryService.transformBooks(Book::toString), restored.transformBooks(Book::toString));
+            assertFalse(restored.lendBook("5678"));
+            assertTrue(restored.lendBook("1234"));
+            assertEquals(libraryService.countBooksByCategory(), restored.countBooksByCategory());
+            assertEquals("George Orwell", restored.getMostProlificAuthor());
+            assertEquals("5678", restored.getRecentBooks(1).get(0).getIsbn());
+            assertEquals(libraryService.transformBooks(Book::getIsbn), restored.transformBooks(Book::getIsbn));
+            assertEquals("9101", restored.searchBooks("the GREAT").get(0).getIsbn());
+            assertEquals(2, restored.searchBooks("orwell").size());
+            assertEquals(1, restored.findBooksByCategory("Dystopian").stream().filter(book -> book.getIsbn().equals("1234")).count());
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    // 제목 역색인은 AND/OR/접두어 검색을 지원하고 책 교체를 반영해야 한다.
+    @Test
+    public void testSearchBooks() {
+        assertEquals(1, libraryService.searchBooks("the GREAT").size());
+        assertEquals(2, libraryService.searchBooks("orwell").size());
+        assertEquals(2, libraryService.searchBooksAnyTerm("gatsby farm").size());
+        assertEquals("3141", libraryService.searchBooks("brave new*").get(0).getIsbn());
+        assertTrue(libraryService.searchBooks("great mockingbird").isEmpty());
+
+        libraryService.updateBookState("9101", book -> new Book("Tender Is the Night", book.getAuthor(), book.getIsbn(), book.getPublishDate(), book.getCategories()));
+        assertTrue(libraryService.searchBooks("gatsby").isEmpty());
+        assertEquals(1, libraryService.searchBooks("tender").size());
+        assertEquals(2, libraryService.searchBooks("t*").size());
+    }
+
+    // 저널에 기록된 변경을 다시 적용하면 같은 상태가 되어야 하고, 끊긴 마지막 기록은 무시되어야 한다.
+    @Test
+    public void testJournalReplay() throws IOException {
+        Path path = Files.createTempFile("library", ".journal");
+        try {
+            LibraryService journaled = new LibraryService(true);
+            try (LibraryJournal journal = LibraryJournal.open(path)) {
+                journaled.attachJournal(journal);
+                journaled.addBooks(libraryService.findBooks(book -> true));
+                journaled.lendBook("1234");
+                journaled.lendBook("5678");
+                journaled.returnBook("1234");
+                journaled.updateBookState("9101", book -> new Book("Tender Is the Night", book.getAuthor(), book.getIsbn(), book.getPublishDate(), book.getCategories()));
+            }
+            // 쓰다가 중단된 기록을 흉내 냅니다.
+            long intact = Files.size(path);
+            Files.write(path, new byte[]{0, 0, 0, 42, 1, 2}, java.nio.file.StandardOpenOption.APPEND);
+
+            LibraryService restored = new LibraryService(true);
+            try (LibraryJournal journal = LibraryJournal.open(path)) {
+                assertEquals(9, journal.replay(restored));
+                assertEquals(intact, Files.size(path));
+                assertEquals(journaled.transformBooks(Book::toString), restored.transformBooks(Book::toString));
+                assertEquals(1, restored.searchBooks("tender").size());
+                assertFalse(restored.lendBook("5678"));
+
+                restored.attachJournal(journal);
+                assertTrue(restored.lendBook("3141"));
+            }
+
+            LibraryService reopened = new LibraryService(true);
+            try (LibraryJournal journal = LibraryJournal.open(path)) {
+                assertEquals(10, journal.replay(reopened));
+            }
+            assertFalse(reopened.lendBook("3141"));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    // 기본으로 연 저널은 변경이 반환되기 전에 디스크에 기록해야 한다. (저널을 닫기 전의 파일만으로 복구할 수 있어야 한다)
+    @Test
+    public void testJournalIsDurableOnReturnByDefault() throws IOException {
+        Path path = Files.createTempFile("library", ".journal");
+        Path copy = Files.createTempFile("library", ".journal");
+        try {
+            LibraryService journaled = new LibraryService(true);
+            try (LibraryJournal journal = LibraryJournal.open(path)) {
+                journaled.attachJournal(journal);
+                journaled.addBooks(libraryService.findBooks(book -> true));
+                assertTrue(journaled.lendBook("1234"));
+                Files.copy(path, copy, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            LibraryService restored = new LibraryService(true);
+            try (LibraryJournal journal = LibraryJournal.open(copy)) {
+                assertEquals(6, journal.replay(restored));
+            }
+            assertFalse(restored.lendBook("1234"));
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    // checkpoint는 스냅샷에 담긴 기록을 저널에서 지우고, 스냅샷과 남은 저널로 같은 상태를 복구해야 한다.
+    // 스냅샷만 쓰고 저널을 지우기 전에 멈춘 경우에도 스냅샷에 이미 담긴 기록을 다시 적용하지 않아야 한다.
+    @Test
+    public void testJournalCheckpoint() throws IOException {
+        Path path = Files.createTempFile("library", ".journal");
+        Path uncompactedJournal = Files.createTempFile("library", ".journal");
+        Path snapshot = Files.createTempFile("library", ".snapshot");
+        Path earlierSnapshot = Files.createTempFile("library", ".snapshot");
+        try {
+            LibraryService journaled = new LibraryService(true);
+            List<String> beforeCheckpoint;
+            try (LibraryJournal journal = LibraryJournal.open(path)) {
+                journaled.attachJournal(journal);
+                journaled.addBooks(libraryService.findBooks(book -> true));
+                journaled.addBook(new Book("1984", "George Orwell", "1234", LocalDate.of(1949, 6, 8), Arrays.asList("Dystopian")));
+                journaled.lendBook("1234");
+                journaled.lendBook("1234");
+                LibrarySnapshot.write(journaled, earlierSnapshot);
+                journaled.returnBook("1234");
+                Files.copy(path, uncompactedJournal, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+                beforeCheckpoint = journaled.transformBooks(Book::toString);
+
+                journal.checkpoint(journaled, snapshot);
+                assertTrue(Files.size(path) < Files.size(uncompactedJournal));
+                journaled.updateBookState("9101", book -> new Book("Tender Is the Night", book.getAuthor(), book.getIsbn(), book.getPublishDate(), book.getCategories()));
+            }
+
+            LibraryService restored = LibrarySnapshot.load(snapshot, true);
+            try (LibraryJournal journal = LibraryJournal.open(path)) {
+                assertEquals(1, journal.replay(restored));
+            }
+            assertEquals(journaled.transformBooks(Book::toString), restored.transformBooks(Book::toString));
+            assertEquals(1, restored.searchBooks("tender").size());
+
+            LibraryService fromEarlier = LibrarySnapshot.load(earlierSnapshot, true);
+            try (LibraryJournal journal = LibraryJournal.open(uncompactedJournal)) {
+                assertEquals(1, journal.replay(fromEarlier));
+            }
+            assertEquals(beforeCheckpoint, fromEarlier.transformBooks(Book::toString));
+            assertEquals(1, fromEarlier.findBooks(book -> book.getIsbn().equals("1234") && !book.isAvailable()).size());
+
+            // 지운 기록이 필요한 서비스에는 적용할 수 없다.
+            try (LibraryJournal journal = LibraryJournal.open(path)) {
+                assertThrows(IOException.class, () -> journal.replay(LibrarySnapshot.load(earlierSnapshot, true)));
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(uncompactedJournal);
+            Files.deleteIfExists(snapshot);
+            Files.deleteIfExists(earlierSnapshot);
+        }
+    }
 }
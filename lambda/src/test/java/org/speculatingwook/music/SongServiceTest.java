@@ -230,4 +230,44 @@ public class SongServiceTest {
         // 전체 5곡 총합 1643, 평균은 1643 / 5 = 328.6
         assertEquals(328.6, avgDuration, 0.1);
     }
+
+    // 22.
+    @Test
+    public void testGetSongs_isImmutableZeroCopySnapshot() {
+        // 바뀐 것이 없으면 같은 스냅샷을 돌려주고, 어떤 수정 메서드도 허용하지 않아야 함
+        List<Song> before = songService.getSongs();
+        assertSame(before, songService.getSongs());
+        assertTrue(before instanceof RandomAccess);
+        assertTrue(before.spliterator().hasCharacteristics(Spliterator.IMMUTABLE | Spliterator.SIZED));
+        Song first = before.get(0);
+        assertThrows(UnsupportedOperationException.class, () -> before.add(first));
+        assertThrows(UnsupportedOperationException.class, () -> before.set(0, first));
+        assertThrows(UnsupportedOperationException.class, () -> before.remove(0));
+        assertThrows(UnsupportedOperationException.class, before::clear);
+        assertThrows(UnsupportedOperationException.class, () -> before.removeIf(song -> true));
+        assertThrows(UnsupportedOperationException.class, () -> before.replaceAll(song -> song));
+        assertThrows(UnsupportedOperationException.class, () -> before.sort(Comparator.comparing(Song::getTitle)));
+        assertThrows(UnsupportedOperationException.class, () -> {
+            Iterator<Song> iterator = before.iterator();
+            iterator.next();
+            iterator.remove();
+        });
+
+        // 추가(배열이 커지는 경우 포함)와 정렬은 새 스냅샷에만 보이고, 곡 객체는 복사되지 않아야 함
+        for (int i = 0; i < 100; i++) {
+            songService.addSong(new Song("Extra " + i, 100 + i, "Jazz", 3.0));
+        }
+        songService.sortSongs(Comparator.comparingInt(Song::getDuration));
+        List<Song> after = songService.getSongs();
+        assertEquals(5, before.size());
+        assertEquals(5, before.stream().count());
+        assertEquals("Bohemian Rhapsody", before.get(0).getTitle());
+        assertEquals("Shape of You", before.get(4).getTitle());
+        assertThrows(IndexOutOfBoundsException.class, () -> before.get(5));
+        assertEquals(105, after.size());
+        assertEquals("Extra 0", after.get(0).getTitle());
+        for (Song song : before) {
+            assertTrue(after.stream().anyMatch(other -> other == song), song.getTitle() + " was copied");
+        }
+    }
 }
@@ -224,4 +224,19 @@ public class UserServiceTest {
         double averageAge = userService.getAverageAge();
         assertEquals(31.6, averageAge, 0.1);
     }
+
+
+    @Test
+    public void testGetUsers_snapshotUnaffectedByLaterChanges() {
+        // getUsers()가 돌려준 목록은 읽기 전용이고, 이후 추가/정렬되어도 내용이 바뀌지 않아야 한다.
+        List<User> snapshot = userService.getUsers();
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(new User("Frank", 45, "IT", 90000)));
+
+        userService.addUser(new User("Frank", 45, "IT", 90000));
+        userService.sortUsers(Comparator.comparing(User::getAge).reversed());
+        assertEquals(5, snapshot.size());
+        assertEquals("Alice", snapshot.get(0).getName());
+        assertEquals(6, userService.getUsers().size());
+        assertEquals("Frank", userService.getUsers().get(0).getName());
+    }
 }
@@ -0,0 +1,54 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.library.Book;
+import org.speculatingwook.library.LibraryService;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 출판 연도 누적 집계를 이용한 getAverageBookAge와 기존 방식(책마다 LocalDate.now() 호출)의 비교.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms6G", "-Xmx6G"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LibraryAverageAgeBenchmark {
+
+    @Param({"1000000", "5000000"})
+    private int size;
+
+    private LibraryService libraryService;
+    private List<Book> books;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        libraryService = new LibraryService();
+        books = new ArrayList<>(size);
+        Random random = new Random(42);
+        List<String> categories = Arrays.asList("Fiction");
+        LocalDate epoch = LocalDate.of(1900, 1, 1);
+        for (int i = 0; i < size; i++) {
+            Book book = new Book("Title " + i, "Author " + (i % 1000), "isbn-" + i, epoch.plusDays(random.nextInt(45_000)), categories);
+            books.add(book);
+            libraryService.addBook(book);
+        }
+    }
+
+    @Benchmark
+    public double averageAgeAggregated() {
+        return libraryService.getAverageBookAge();
+    }
+
+    @Benchmark
+    public double averageAgeFullScan() {
+        return books.stream()
+                .mapToLong(book -> LocalDate.now().getYear() - book.getPublishDate().getYear())
+                .average()
+                .orElse(0);
+    }
+}
@@ -0,0 +1,87 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.library.Book;
+import org.speculatingwook.library.LibraryService;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 사전 인코딩된 카테고리(int id)와 책마다 문자열 리스트를 들고 있던 기존 방식의 비교.
+ * <p>
+ * 카테고리 필터 스캔과 카테고리별 집계로 비교한다. 할당량은 {@code -prof gc}로 돌려 gc.alloc.rate.norm(op당 할당 바이트)을 본다.
+ * getCategories()가 책마다 만들어 둔 뷰를 돌려주므로 filterEncoded도 스캔 중에 책마다 할당하지 않아야 한다.
+ * 기존 방식은 DB에서 읽어온 것처럼 책마다 새 문자열 인스턴스를 갖게 만든다.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms6G", "-Xmx6G"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LibraryCategoryEncodingBenchmark {
+
+    private static final String[] CATEGORIES = {
+            "Fiction", "Classic", "Dystopian", "Science fiction", "Romance",
+            "Mystery", "History", "Biography", "Poetry", "Fantasy"
+    };
+
+    @Param({"1000000"})
+    private int size;
+
+    private LibraryService libraryService;
+    private List<Book> books;
+    private List<List<String>> legacyCategories;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDate publishDate = LocalDate.of(2000, 1, 1);
+        legacyCategories = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            legacyCategories.add(legacyCategoriesOf(i));
+        }
+
+        libraryService = new LibraryService();
+        for (int i = 0; i < size; i++) {
+            libraryService.addBook(new Book("Title " + i, "Author " + (i % 1000), "isbn-" + i, publishDate, legacyCategories.get(i)));
+        }
+        // 서비스에 들어가며 사전으로 인코딩된 책들로 스캔한다.
+        books = libraryService.findBooks(book -> true);
+    }
+
+    private static List<String> legacyCategoriesOf(int i) {
+        return Arrays.asList(
+                new String(CATEGORIES[i % CATEGORIES.length]),
+                new String(CATEGORIES[(i / 7) % CATEGORIES.length]));
+    }
+
+    @Benchmark
+    public long filterEncoded() {
+        return books.stream()
+                .filter(book -> book.getCategories().contains("Mystery"))
+                .count();
+    }
+
+    @Benchmark
+    public long filterLegacy() {
+        return legacyCategories.stream()
+                .filter(categories -> categories.contains("Mystery"))
+                .count();
+    }
+
+    @Benchmark
+    public Map<String, Long> countByCategoryMaintained() {
+        return libraryService.countBooksByCategory();
+    }
+
+    @Benchmark
+    public Map<String, Long> countByCategoryLegacy() {
+        return legacyCategories.stream()
+                .flatMap(List::stream)
+                .collect(Collectors.groupingBy(category -> category, Collectors.counting()));
+    }
+}
@@ -0,0 +1,74 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.library.Book;
+import org.speculatingwook.library.LibraryService;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동시 대출 모드에서 스레드 수(1 ~ 8)에 따른 대출/반납 처리량.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LibraryConcurrentLendingBenchmark {
+
+    @Param({"100000"})
+    private int size;
+
+    private LibraryService libraryService;
+    private String[] isbns;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        libraryService = new LibraryService(true);
+        isbns = new String[size];
+        List<String> categories = Arrays.asList("Fiction");
+        LocalDate publishDate = LocalDate.of(2000, 1, 1);
+        for (int i = 0; i < size; i++) {
+            isbns[i] = "isbn-" + i;
+            libraryService.addBook(new Book("Title " + i, "Author " + (i % 1000), isbns[i], publishDate, categories));
+        }
+    }
+
+    private boolean lendAndReturn() {
+        String isbn = isbns[ThreadLocalRandom.current().nextInt(isbns.length)];
+        boolean lent = libraryService.lendBook(isbn);
+        if (lent) {
+            libraryService.returnBook(isbn);
+        }
+        return lent;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean lendAndReturn_1thread() {
+        return lendAndReturn();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public boolean lendAndReturn_2threads() {
+        return lendAndReturn();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean lendAndReturn_4threads() {
+        return lendAndReturn();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean lendAndReturn_8threads() {
+        return lendAndReturn();
+    }
+}
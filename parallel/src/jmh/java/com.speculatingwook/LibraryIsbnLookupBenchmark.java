@@ -0,0 +1,94 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.library.Book;
+import org.speculatingwook.library.LibraryService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ISBN 인덱스 조회와 기존 방식(전체 목록 선형 탐색)의 비교.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms6G", "-Xmx6G"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LibraryIsbnLookupBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    private int size;
+
+    private LibraryService libraryService;
+    private List<Book> books;
+    private String[] probes;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        libraryService = new LibraryService();
+        books = new ArrayList<>(size);
+        List<String> categories = Arrays.asList("Fiction", "Classic");
+        LocalDate publishDate = LocalDate.of(2000, 1, 1);
+        for (int i = 0; i < size; i++) {
+            Book book = new Book("Title " + i, "Author " + (i % 1000), "isbn-" + i, publishDate, categories);
+            books.add(book);
+            libraryService.addBook(book);
+        }
+        // 목록 전체에 고르게 퍼진 ISBN을 번갈아 조회한다.
+        probes = new String[64];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = "isbn-" + (long) size * i / probes.length;
+        }
+    }
+
+    private String nextIsbn() {
+        cursor = (cursor + 1) & (probes.length - 1);
+        return probes[cursor];
+    }
+
+    @Benchmark
+    public Optional<Book> findByIsbnIndexed() {
+        return libraryService.findBookByIsbn(nextIsbn());
+    }
+
+    @Benchmark
+    public Optional<Book> findByIsbnLinearScan() {
+        String isbn = nextIsbn();
+        return books.stream()
+                .filter(book -> book.getIsbn().equals(isbn))
+                .findFirst();
+    }
+
+    @Benchmark
+    public boolean lendAndReturnIndexed() {
+        String isbn = nextIsbn();
+        boolean lent = libraryService.lendBook(isbn);
+        libraryService.returnBook(isbn);
+        return lent;
+    }
+
+    @Benchmark
+    public boolean lendAndReturnLinearScan() {
+        String isbn = nextIsbn();
+        boolean lent = books.stream()
+                .filter(book -> book.getIsbn().equals(isbn) && book.isAvailable())
+                .findFirst()
+                .map(book -> {
+                    book.setAvailable(false);
+                    return true;
+                })
+                .orElse(false);
+        books.stream()
+                .filter(book -> book.getIsbn().equals(isbn))
+                .findFirst()
+                .ifPresent(book -> book.setAvailable(true));
+        return lent;
+    }
+}
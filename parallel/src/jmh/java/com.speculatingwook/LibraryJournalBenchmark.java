@@ -0,0 +1,95 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.library.Book;
+import org.speculatingwook.library.LibraryJournal;
+import org.speculatingwook.library.LibraryService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 저널 방식과 스레드 수에 따른 대출/반납 처리량(ops/sec).
+ * off는 저널 없이, strict는 매 변경이 자신의 fsync를 기다리도록(기본, commit window 0),
+ * window는 {@link LibraryJournal#GROUP_COMMIT_WINDOW}로 저널을 엽니다. 요구 사항은 window가 off의 1/10 아래로 떨어지지 않는 것입니다.
+ * strict는 스레드가 많을수록 group commit으로 fsync 한 번에 묶이는 변경이 늘어납니다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LibraryJournalBenchmark {
+
+    @Param({"100000"})
+    private int size;
+
+    @Param({"off", "strict", "window"})
+    private String journalMode;
+
+    private LibraryService libraryService;
+    private LibraryJournal journal;
+    private Path path;
+    private String[] isbns;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        libraryService = new LibraryService(true);
+        isbns = new String[size];
+        List<String> categories = Arrays.asList("Fiction");
+        LocalDate publishDate = LocalDate.of(2000, 1, 1);
+        for (int i = 0; i < size; i++) {
+            isbns[i] = "isbn-" + i;
+            libraryService.addBook(new Book("Title " + i, "Author " + (i % 1000), isbns[i], publishDate, categories));
+        }
+        if (!journalMode.equals("off")) {
+            path = Files.createTempFile("library", ".journal");
+            journal = journalMode.equals("strict")
+                    ? LibraryJournal.open(path)
+                    : LibraryJournal.open(path, LibraryJournal.GROUP_COMMIT_WINDOW);
+            libraryService.attachJournal(journal);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (journal != null) {
+            journal.close();
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private boolean lendAndReturn() {
+        String isbn = isbns[ThreadLocalRandom.current().nextInt(isbns.length)];
+        boolean lent = libraryService.lendBook(isbn);
+        if (lent) {
+            libraryService.returnBook(isbn);
+        }
+        return lent;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean lendAndReturn_1thread() {
+        return lendAndReturn();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean lendAndReturn_8threads() {
+        return lendAndReturn();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean lendAndReturn_32threads() {
+        return lendAndReturn();
+    }
+}
@@ -0,0 +1,78 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.library.Book;
+import org.speculatingwook.library.LibraryService;
+import org.speculatingwook.library.ParallelBookExecutor;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU를 많이 쓰는 변환 작업에서 풀 크기(코어 수)와 청크 크기에 따른 transformBooks 확장성.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LibraryParallelTransformBenchmark {
+
+    @Param({"100000"})
+    private int size;
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    @Param({"1024"})
+    private int chunkSize;
+
+    private LibraryService libraryService;
+    private ForkJoinPool pool;
+    private ParallelBookExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        libraryService = new LibraryService();
+        List<String> categories = Arrays.asList("Fiction");
+        LocalDate publishDate = LocalDate.of(2000, 1, 1);
+        for (int i = 0; i < size; i++) {
+            libraryService.addBook(new Book("Title " + i, "Author " + (i % 1000), "isbn-" + i, publishDate, categories));
+        }
+        pool = new ForkJoinPool(parallelism);
+        executor = new ParallelBookExecutor(pool, chunkSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    // 책 하나당 수 마이크로초가 걸리는 변환을 흉내낸다.
+    private static long enrich(Book book) {
+        long hash = book.getTitle().hashCode();
+        for (int i = 0; i < 2_000; i++) {
+            hash = hash * 31 + (hash >>> 7) + i;
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public List<Long> sequential() {
+        return libraryService.transformBooks(LibraryParallelTransformBenchmark::enrich);
+    }
+
+    @Benchmark
+    public List<Long> parallelOrdered() {
+        return libraryService.transformBooks(LibraryParallelTransformBenchmark::enrich, executor).getResults();
+    }
+
+    @Benchmark
+    public List<Long> parallelUnordered() {
+        return libraryService.transformBooksUnordered(LibraryParallelTransformBenchmark::enrich, executor).getResults();
+    }
+}
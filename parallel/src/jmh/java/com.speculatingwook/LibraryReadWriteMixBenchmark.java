@@ -0,0 +1,81 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.library.Book;
+import org.speculatingwook.library.LibraryService;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동시 모드에서 읽기 3 스레드 + 쓰기 1 스레드가 섞였을 때의 처리량.
+ * 읽기는 발행된 버전 위에서, 쓰기는 버전을 새로 발행하며 진행된다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Group)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LibraryReadWriteMixBenchmark {
+
+    @Param({"100000"})
+    private int size;
+
+    @Param({"1", "100"})
+    private int batchSize;
+
+    private LibraryService libraryService;
+    private List<String> categories;
+    private LocalDate publishDate;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        libraryService = new LibraryService(true);
+        categories = Arrays.asList("Fiction", "Classic");
+        publishDate = LocalDate.of(2000, 1, 1);
+        Book[] books = new Book[size];
+        for (int i = 0; i < size; i++) {
+            books[i] = newBook(i);
+        }
+        libraryService.addBooks(Arrays.asList(books));
+    }
+
+    private Book newBook(int i) {
+        return new Book("Title " + i, "Author " + (i % 1000), "isbn-" + i, publishDate, categories);
+    }
+
+    @Benchmark
+    @Group("mix")
+    @GroupThreads(3)
+    public Map<String, List<Book>> readGroupByAuthor() {
+        return libraryService.groupBooksByAuthor();
+    }
+
+    @Benchmark
+    @Group("mix")
+    @GroupThreads(3)
+    public int readScan() {
+        return libraryService.findBooks(book -> book.getTitle().endsWith("7")).size();
+    }
+
+    @Benchmark
+    @Group("mix")
+    @GroupThreads(1)
+    public void write() {
+        int i = ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+        if (batchSize == 1) {
+            libraryService.addBook(newBook(size + i));
+            return;
+        }
+        Book[] batch = new Book[batchSize];
+        for (int b = 0; b < batchSize; b++) {
+            batch[b] = newBook(size + i + b);
+        }
+        libraryService.addBooks(Arrays.asList(batch));
+    }
+}
@@ -0,0 +1,59 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.library.Book;
+import org.speculatingwook.library.LibraryService;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 출판일 인덱스를 이용한 getRecentBooks와 기존 방식(전체 정렬 후 limit)의 비교.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms4G", "-Xmx4G"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LibraryRecentBooksBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    @Param({"10"})
+    private int n;
+
+    private LibraryService libraryService;
+    private List<Book> books;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        libraryService = new LibraryService();
+        books = new ArrayList<>(size);
+        Random random = new Random(42);
+        List<String> categories = Arrays.asList("Fiction");
+        LocalDate epoch = LocalDate.of(1900, 1, 1);
+        for (int i = 0; i < size; i++) {
+            LocalDate publishDate = epoch.plusDays(random.nextInt(45_000));
+            Book book = new Book("Title " + i, "Author " + (i % 1000), "isbn-" + i, publishDate, categories);
+            books.add(book);
+            libraryService.addBook(book);
+        }
+    }
+
+    @Benchmark
+    public List<Book> recentBooksIndexed() {
+        return libraryService.getRecentBooks(n);
+    }
+
+    @Benchmark
+    public List<Book> recentBooksFullSort() {
+        return books.stream()
+                .sorted(Comparator.comparing(Book::getPublishDate).reversed())
+                .limit(n)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,69 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.library.Book;
+import org.speculatingwook.library.LibraryService;
+import org.speculatingwook.library.LibrarySnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 메모리 매핑 스냅샷 적재와 addBook 재실행으로 카탈로그를 다시 채우는 방식의 비교.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms6G", "-Xmx6G"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LibrarySnapshotBenchmark {
+
+    @Param({"1000000"})
+    private int size;
+
+    private Path snapshot;
+    private String[] titles;
+    private String[] isbns;
+    private LocalDate[] publishDates;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        titles = new String[size];
+        isbns = new String[size];
+        publishDates = new LocalDate[size];
+        LocalDate epoch = LocalDate.of(1900, 1, 1);
+        for (int i = 0; i < size; i++) {
+            titles[i] = "Title " + i;
+            isbns[i] = "isbn-" + i;
+            publishDates[i] = epoch.plusDays(i % 45_000);
+        }
+        snapshot = Files.createTempFile("library", ".snapshot");
+        LibrarySnapshot.write(replayAddBook(), snapshot);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public LibraryService loadSnapshot() throws IOException {
+        return LibrarySnapshot.load(snapshot);
+    }
+
+    @Benchmark
+    public LibraryService replayAddBook() {
+        LibraryService libraryService = new LibraryService();
+        List<String> categories = Arrays.asList("Fiction", "Classic");
+        for (int i = 0; i < size; i++) {
+            libraryService.addBook(new Book(titles[i], "Author " + (i % 1000), isbns[i], publishDates[i], categories));
+        }
+        return libraryService;
+    }
+}
@@ -0,0 +1,98 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.cinema.Movie;
+import org.speculatingwook.cinema.MovieService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MovieService의 열 단위 저장소에서 돌리는 집계/필터와, 같은 작업을 List&lt;Movie&gt; 스트림으로 돌리는 경우 비교.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms4G", "-Xmx4G"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MovieColumnarAggregateBenchmark {
+
+    private static final String[] GENRES = {"Action", "Comedy", "Drama", "Horror", "Romance", "Sci-Fi", "Thriller", "Animation"};
+
+    @Param({"1000000", "10000000"})
+    private int size;
+
+    private MovieService movieService;
+    private List<Movie> movies;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        movieService = new MovieService();
+        movies = new ArrayList<>(size);
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            Movie movie = new Movie("Movie " + i, GENRES[random.nextInt(GENRES.length)], 1950 + random.nextInt(75),
+                    Math.round(random.nextDouble() * 50) / 10.0, 80 + random.nextInt(120), "Director " + random.nextInt(10_000),
+                    random.nextInt(1_000_000_000));
+            movieService.addMovie(movie);
+            movies.add(movie);
+        }
+        // 오래 운영된 힙에서는 리스트 순서와 객체의 메모리 배치가 어긋나 있으므로 순서를 섞어서 재현합니다.
+        Collections.shuffle(movies, random);
+    }
+
+    @Benchmark
+    public long totalBoxOffice_stream() {
+        return movies.stream().mapToLong(Movie::getBoxOffice).sum();
+    }
+
+    @Benchmark
+    public long totalBoxOffice_columnar() {
+        return movieService.getTotalBoxOffice();
+    }
+
+    @Benchmark
+    public double averageRating_stream() {
+        return movies.stream().mapToDouble(Movie::getRating).average().orElse(0);
+    }
+
+    @Benchmark
+    public double averageRating_columnar() {
+        return movieService.getAverageRating();
+    }
+
+    @Benchmark
+    public int earliestYear_stream() {
+        return movies.stream().mapToInt(Movie::getYear).min().orElse(0);
+    }
+
+    @Benchmark
+    public int earliestYear_columnar() {
+        return movieService.getEarliestYear();
+    }
+
+    @Benchmark
+    public long totalBoxOfficeByGenre_stream() {
+        return movies.stream().filter(movie -> "Sci-Fi".equals(movie.getGenre())).mapToLong(Movie::getBoxOffice).sum();
+    }
+
+    @Benchmark
+    public long totalBoxOfficeByGenre_columnar() {
+        return movieService.getTotalBoxOfficeByGenre("Sci-Fi");
+    }
+
+    @Benchmark
+    public int durationRange_stream() {
+        // 약 1% 선택
+        return (int) movies.stream().filter(movie -> movie.getDuration() >= 100 && movie.getDuration() <= 100).count();
+    }
+
+    @Benchmark
+    public int durationRange_columnar() {
+        return movieService.getMoviesInDurationRange(100, 100).size();
+    }
+}
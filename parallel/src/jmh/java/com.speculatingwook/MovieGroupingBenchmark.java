@@ -0,0 +1,95 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.cinema.Movie;
+import org.speculatingwook.cinema.MovieService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 그룹화 인덱스 조회와, 호출마다 스트림으로 맵을 새로 만드는 경우 비교.
+ * 호출당 할당량은 -prof gc로 실행해서 gc.alloc.rate.norm으로 확인합니다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MovieGroupingBenchmark {
+
+    private static final String[] GENRES = {"Action", "Comedy", "Drama", "Horror", "Romance", "Sci-Fi", "Thriller", "Animation"};
+
+    @Param({"100000"})
+    private int size;
+
+    private MovieService movieService;
+    private List<Movie> movies;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        movieService = new MovieService();
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            movieService.addMovie(new Movie("Movie " + i, GENRES[random.nextInt(GENRES.length)], 1950 + random.nextInt(75),
+                    random.nextInt(51) / 10.0, 80 + random.nextInt(120), "Director " + random.nextInt(10_000),
+                    random.nextInt(1_000_000_000)));
+        }
+        movies = movieService.getMovies();
+    }
+
+    @Benchmark
+    public Map<String, List<Movie>> byGenre_index() {
+        return movieService.groupMoviesByGenre();
+    }
+
+    @Benchmark
+    public Map<String, List<Movie>> byGenre_stream() {
+        return movies.stream().collect(Collectors.groupingBy(Movie::getGenre));
+    }
+
+    @Benchmark
+    public Map<String, List<String>> titlesByDirector_index() {
+        return movieService.groupMovieTitlesByDirector();
+    }
+
+    @Benchmark
+    public Map<String, List<String>> titlesByDirector_stream() {
+        return movies.stream().collect(Collectors.groupingBy(Movie::getDirector,
+                Collectors.mapping(Movie::getTitle, Collectors.toList())));
+    }
+
+    @Benchmark
+    public Map<String, Long> genreCount_index() {
+        return movieService.getGenreCount();
+    }
+
+    @Benchmark
+    public Map<String, Long> genreCount_stream() {
+        return movies.stream().collect(Collectors.groupingBy(Movie::getGenre, Collectors.counting()));
+    }
+
+    @Benchmark
+    public long genreCountLookup_index() {
+        return movieService.getGenreCount().get("Drama");
+    }
+
+    @Benchmark
+    public long genreCountLookup_stream() {
+        return movies.stream().map(Movie::getGenre).filter("Drama"::equals).count();
+    }
+
+    @Benchmark
+    public Map<Integer, List<Movie>> byYear_stream() {
+        return movies.stream().collect(Collectors.groupingBy(Movie::getYear));
+    }
+
+    @Benchmark
+    public Map<Integer, List<Movie>> byYear_index() {
+        return movieService.groupMoviesByYear();
+    }
+}
@@ -0,0 +1,86 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.cinema.Movie;
+import org.speculatingwook.cinema.MovieService;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 정렬 인덱스로 처리하는 범위 필터와 전체 목록 스캔 비교.
+ * 선택도가 높은 범위(전체의 약 0.1%)와 낮은 범위(약 50%)를 나눠서 잽니다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MovieRangeIndexBenchmark {
+
+    @Param({"1000000"})
+    private int size;
+
+    private MovieService movieService;
+    private List<Movie> movies;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        movieService = new MovieService();
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            movieService.addMovie(new Movie("Movie " + i, "Drama", 1950 + random.nextInt(75),
+                    random.nextInt(5001) / 1000.0, 80 + random.nextInt(120), "Director " + random.nextInt(10_000),
+                    random.nextInt(1_000_000_000)));
+        }
+        movies = movieService.getMovies();
+        // 첫 조회 때 일어나는 인덱스 병합은 측정에서 뺍니다.
+        movieService.getMoviesBetweenYears(0, 0);
+        movieService.getMoviesInDurationRange(0, 0);
+        movieService.getMoviesWithRatingInRange(0, 0);
+        movieService.getMoviesWithBoxOfficeAbove(Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<Movie> selectiveRating_index() {
+        return movieService.getMoviesWithRatingInRange(2.500, 2.504);
+    }
+
+    @Benchmark
+    public List<Movie> selectiveRating_scan() {
+        return movies.stream().filter(movie -> movie.getRating() >= 2.500 && movie.getRating() <= 2.504).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Movie> selectiveBoxOffice_index() {
+        return movieService.getMoviesWithBoxOfficeAbove(999_000_000);
+    }
+
+    @Benchmark
+    public List<Movie> selectiveBoxOffice_scan() {
+        return movies.stream().filter(movie -> movie.getBoxOffice() >= 999_000_000).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Movie> nonSelectiveDuration_index() {
+        return movieService.getMoviesInDurationRange(80, 139);
+    }
+
+    @Benchmark
+    public List<Movie> nonSelectiveDuration_scan() {
+        return movies.stream().filter(movie -> movie.getDuration() >= 80 && movie.getDuration() <= 139).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Movie> nonSelectiveYear_index() {
+        return movieService.getMoviesReleasedAfter(1987);
+    }
+
+    @Benchmark
+    public List<Movie> nonSelectiveYear_scan() {
+        return movies.stream().filter(movie -> movie.getYear() > 1987).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,57 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.cinema.Movie;
+import org.speculatingwook.cinema.MovieService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 전체 영화 목록 조회 후 한 번 훑기: 발행된 스냅샷(getMovies)과 기존 방식인 방어적 복사 비교.
+ * 할당량 차이는 -prof gc로 실행해서 gc.alloc.rate.norm으로 확인합니다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms4G", "-Xmx4G"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MovieSnapshotBenchmark {
+
+    @Param({"100000", "5000000"})
+    private int size;
+
+    private MovieService movieService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        movieService = new MovieService();
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            movieService.addMovie(new Movie("Movie " + i, "Drama", 1950 + random.nextInt(75),
+                    random.nextInt(51) / 10.0, 80 + random.nextInt(120), "Director " + random.nextInt(10_000),
+                    random.nextInt(1_000_000_000)));
+        }
+    }
+
+    @Benchmark
+    public long snapshot() {
+        return sumDuration(movieService.getMovies());
+    }
+
+    @Benchmark
+    public long defensiveCopy() {
+        return sumDuration(new ArrayList<>(movieService.getMovies()));
+    }
+
+    private static long sumDuration(List<Movie> movies) {
+        long total = 0;
+        for (Movie movie : movies) {
+            total += movie.getDuration();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,64 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.cinema.Movie;
+import org.speculatingwook.cinema.MovieService;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 제목 부분 문자열 검색 지연 시간. trigram 인덱스와, 영화마다 toLowerCase 후 contains를 호출하는 스캔을 비교합니다.
+ * 자동 완성에서처럼 짧은 검색어(인덱스를 쓰지 못하는 2글자 포함)와 긴 검색어를 나눠서 잽니다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MovieTitleSearchBenchmark {
+
+    private static final String[] WORDS = {"the", "dark", "knight", "return", "of", "star", "love", "night", "city", "last",
+            "lost", "war", "king", "queen", "river", "shadow", "empire", "dream", "storm", "silent", "golden", "blue"};
+
+    @Param({"1000000"})
+    private int size;
+
+    @Param({"da", "nig", "shadow", "Golden Empire of"})
+    private String keyword;
+
+    private MovieService movieService;
+    private List<Movie> movies;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        movieService = new MovieService();
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int w = 2 + random.nextInt(4); w > 0; w--) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                title.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length()).append(' ');
+            }
+            title.append(i);
+            movieService.addMovie(new Movie(title.toString(), "Drama", 2000, 3.0, 120, "Director", 0));
+        }
+        movies = movieService.getMovies();
+    }
+
+    @Benchmark
+    public List<Movie> index() {
+        return movieService.getMoviesTitleContainsIgnoreCase(keyword);
+    }
+
+    @Benchmark
+    public List<Movie> scan() {
+        String lowerKeyword = keyword.toLowerCase();
+        return movies.stream()
+                .filter(movie -> movie.getTitle().toLowerCase().contains(lowerKeyword))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,61 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.cinema.Movie;
+import org.speculatingwook.cinema.MovieService;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 앞선 k편만 필요할 때 topK(크기 k 힙)와 sorted().limit(k)(전체 정렬) 비교. N/k 비율을 바꿔 가며 잽니다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MovieTopKBenchmark {
+
+    private static final Comparator<Movie> BY_BOX_OFFICE_DESC = Comparator.comparingLong(Movie::getBoxOffice).reversed();
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    @Param({"10", "50", "1000"})
+    private int k;
+
+    private MovieService movieService;
+    private List<Movie> movies;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        movieService = new MovieService();
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            movieService.addMovie(new Movie("Movie " + i, "Drama", 1950 + random.nextInt(75),
+                    random.nextInt(51) / 10.0, 80 + random.nextInt(120), "Director " + random.nextInt(10_000),
+                    random.nextInt(1_000_000_000)));
+        }
+        movies = movieService.getMovies();
+    }
+
+    @Benchmark
+    public List<Movie> sortedLimit() {
+        return movies.stream().sorted(BY_BOX_OFFICE_DESC).limit(k).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Movie> topK() {
+        return movieService.topK(BY_BOX_OFFICE_DESC, k);
+    }
+
+    @Benchmark
+    public List<Movie> topKParallel() {
+        return movieService.topKParallel(BY_BOX_OFFICE_DESC, k);
+    }
+}
@@ -0,0 +1,50 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.cinema.Movie;
+import org.speculatingwook.cinema.MovieService;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 파생값 Supplier: 버전이 같을 때 재사용하는 get()과 매번 다시 계산하는 호출 비교. 읽기 스레드 4개로 잽니다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+public class MovieVersionedSupplierBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    private MovieService movieService;
+    private Supplier<Long> totalBoxOffice;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        movieService = new MovieService();
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            movieService.addMovie(new Movie("Movie " + i, "Drama", 1950 + random.nextInt(75),
+                    random.nextInt(51) / 10.0, 80 + random.nextInt(120), "Director " + random.nextInt(10_000),
+                    random.nextInt(1_000_000_000)));
+        }
+        totalBoxOffice = movieService.supplyTotalBoxOfficeSupplier();
+    }
+
+    @Benchmark
+    public long totalBoxOfficeRecomputed() {
+        return movieService.getTotalBoxOffice();
+    }
+
+    @Benchmark
+    public Long totalBoxOfficeVersioned() {
+        return totalBoxOffice.get();
+    }
+}
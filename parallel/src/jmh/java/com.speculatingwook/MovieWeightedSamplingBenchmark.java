@@ -0,0 +1,72 @@
+package com.speculatingwook;
+
+import org.openjdk.jmh.annotations.*;
+import org.speculatingwook.cinema.Movie;
+import org.speculatingwook.cinema.MovieSampler;
+import org.speculatingwook.cinema.MovieService;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 흥행수익 가중 샘플링: alias table 샘플러와 매번 전체를 훑는 누적합 방식 비교.
+ * 샘플러는 여러 스레드에서 동시에 뽑으므로 4스레드로 잽니다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+public class MovieWeightedSamplingBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    private MovieSampler sampler;
+    private List<Movie> movies;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MovieService movieService = new MovieService();
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            movieService.addMovie(new Movie("Movie " + i, "Drama", 1950 + random.nextInt(75),
+                    random.nextInt(51) / 10.0, 80 + random.nextInt(120), "Director " + random.nextInt(10_000),
+                    random.nextInt(1_000_000_000)));
+        }
+        sampler = movieService.getBoxOfficeWeightedSampler();
+        sampler.sample();
+        movies = movieService.getMovies();
+    }
+
+    @Benchmark
+    public Optional<Movie> aliasTable() {
+        return sampler.sample();
+    }
+
+    @Benchmark
+    public List<Movie> aliasTableWithoutReplacement10() {
+        return sampler.sample(10);
+    }
+
+    @Benchmark
+    public Movie linearScan() {
+        long total = 0;
+        for (Movie movie : movies) {
+            total += movie.getBoxOffice();
+        }
+        long target = ThreadLocalRandom.current().nextLong(total);
+        for (Movie movie : movies) {
+            target -= movie.getBoxOffice();
+            if (target < 0) {
+                return movie;
+            }
+        }
+        return null;
+    }
+}